@@ -0,0 +1,185 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+import voteflix.benchmarks.ServerTargets;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementação de {@link ServerTargets} no pacote padrão, junto com o
+ * servidor. Repete a sequência de {@code VoteFlixServer.start()} sem abrir
+ * sockets, sobre um banco H2 em memória.
+ */
+public class BenchmarkTargets implements ServerTargets {
+
+    private static final String[] GENRES = {
+            "Ação", "Aventura", "Comédia", "Drama", "Ficção Científica", "Terror", "Romance", "Documentário"
+    };
+    private static final int REVIEWED_MOVIES = 200;
+
+    private final DatabaseService db = DatabaseService.getInstance();
+    private final JwtService jwt = JwtService.getInstance();
+
+    private RequestRouter router;
+    private ClientSession session;
+    private String dbName;
+    private String adminToken;
+    private String userToken;
+    private int userReviewId;
+
+    @Override
+    public void start(int catalogSize) throws Exception {
+        dbName = "bench" + catalogSize + "_" + System.nanoTime();
+        ServerConfig config = ServerConfig.fromArgs(new String[] {
+                "--db-path=mem:" + dbName,
+                // Os limites por cliente e o descarte por sobrecarga mediriam o limitador, não o servidor
+                "--rate-read=0", "--rate-heavy=0", "--shed-backlog=0", "--shed-db-wait-ms=0"
+        });
+
+        db.configure(config);
+        db.initializeDatabase();
+        MovieCatalogCache.getInstance().configure(config);
+        JwtService.getInstance().configure(config);
+        AdmissionControl.getInstance().configure(config);
+        MetricsRegistry.getInstance().start(config);
+
+        seed(catalogSize);
+        MovieSearchIndex.getInstance().rebuild();
+
+        router = new RequestRouter();
+        session = new ClientSession();
+
+        User admin = db.findUserByUsername("admin");
+        adminToken = jwt.generateToken(admin.getId(), admin.getUsername(), admin.getRole());
+        User user = db.findUserByUsername("bench");
+        userToken = jwt.generateToken(user.getId(), user.getUsername(), user.getRole());
+    }
+
+    private void seed(int catalogSize) throws Exception {
+        List<DatabaseService.MovieRow> rows = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            List<String> generos = List.of(GENRES[i % GENRES.length], GENRES[(i * 7 + 3) % GENRES.length]);
+            rows.add(new DatabaseService.MovieRow(String.format("Filme %06d", i), "Diretor " + (i % 500),
+                    String.valueOf(1950 + i % 75), generos, "Sinopse do filme " + i + " para o benchmark."));
+        }
+        if (!rows.isEmpty()) db.importMovies(rows);
+
+        db.createUser("bench", PasswordService.hashPassword("bench123"), "user");
+        User user = db.findUserByUsername("bench");
+        int reviewed = Math.min(REVIEWED_MOVIES, catalogSize);
+        for (int id = 1; id <= reviewed; id++) {
+            db.createReview(id, user.getId(), user.getUsername(), 1 + id % 5, "Review " + id, "Texto", "2024-01-01");
+        }
+        userReviewId = reviewed > 0 ? 1 : -1;
+    }
+
+    @Override
+    public void stop() throws Exception {
+        db.shutdown();
+        MetricsRegistry.getInstance().stop();
+        // DB_CLOSE_DELAY=-1 mantém o banco em memória até um SHUTDOWN explícito
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:" + dbName, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        }
+    }
+
+    @Override
+    public String adminToken() {
+        return adminToken;
+    }
+
+    @Override
+    public String userToken() {
+        return userToken;
+    }
+
+    @Override
+    public int userReviewId() {
+        return userReviewId;
+    }
+
+    @Override
+    public int route(String requestLine) throws Exception {
+        JSONObject response = router.handleRequest(requestLine, session);
+        StringWriter out = new StringWriter(256);
+        ResponseWriter.write(response, out); // Listagens em streaming só consultam o banco aqui
+        return out.getBuffer().length();
+    }
+
+    @Override
+    public String generateToken(int id, String username, String role) {
+        return jwt.generateToken(id, username, role);
+    }
+
+    @Override
+    public Object validateToken(String token) {
+        return jwt.validateAndGetClaims(token);
+    }
+
+    @Override
+    public void configureTokenCache(int size) {
+        try {
+            jwt.configure(ServerConfig.fromArgs(new String[] { "--token-cache=" + size }));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String hashPassword(String password) {
+        return PasswordService.hashPassword(password);
+    }
+
+    @Override
+    public String validateMovie(String titulo, String diretor, String ano, String sinopse, JSONArray generos) {
+        return ValidationService.validateMovie(titulo, diretor, ano, sinopse, generos);
+    }
+
+    @Override
+    public String movieRowJson(ResultSet rs) throws Exception {
+        return DatabaseService.resultSetToMovieJson(rs).toString();
+    }
+
+    @Override
+    public String findMovie(int id) throws Exception {
+        JSONObject filme = db.findMovieByIdAsJson(id);
+        return filme != null ? filme.toString() : null;
+    }
+
+    @Override
+    public int listAllMovies() throws Exception {
+        return db.getAllMoviesAsJson().size();
+    }
+
+    @Override
+    public int listMoviesPage(int limite) throws Exception {
+        return db.getMoviesPage(limite, null).itens.size();
+    }
+
+    @Override
+    public int createMovie(String titulo, String diretor, String ano) throws Exception {
+        return db.createMovie(titulo, diretor, ano, List.of(GENRES[0], GENRES[3]), "Criado pelo benchmark.");
+    }
+
+    @Override
+    public void updateMovie(int id, String titulo, String diretor, String ano) throws Exception {
+        db.updateMovie(id, titulo, diretor, ano, List.of(GENRES[1], GENRES[3]), "Editado pelo benchmark.");
+    }
+
+    @Override
+    public void deleteMovie(int id) throws Exception {
+        db.deleteMovie(id);
+    }
+
+    @Override
+    public void updateReview(int idReview, int nota) throws Exception {
+        db.updateReview(idReview, nota, "Review editada", "Texto editado", "2024-01-02");
+    }
+}
@@ -0,0 +1,85 @@
+package voteflix.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DatabaseService contra um H2 em memória com catálogos de tamanhos
+ * diferentes: leitura por id, página de listagem, listagem completa e as
+ * escritas de filme e review (cada uma em transação própria, como no servidor).
+ *
+ * "criarEExcluirFilme" mantém o catálogo do mesmo tamanho durante a medição.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatabaseBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int catalogSize;
+
+    private ServerTargets server;
+    private int nextId;
+    private int created;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = ServerTargets.load();
+        server.start(catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    @Benchmark
+    public String buscarPorId() throws Exception {
+        nextId = nextId % catalogSize + 1;
+        return server.findMovie(nextId);
+    }
+
+    @Benchmark
+    public int listarPagina() throws Exception {
+        return server.listMoviesPage(20);
+    }
+
+    @Benchmark
+    public int listarTodos() throws Exception {
+        return server.listAllMovies();
+    }
+
+    @Benchmark
+    public void editarFilme() throws Exception {
+        nextId = nextId % catalogSize + 1;
+        server.updateMovie(nextId, String.format("Filme %06d", nextId - 1), "Diretor " + ((nextId - 1) % 500),
+                String.valueOf(1950 + (nextId - 1) % 75));
+    }
+
+    @Benchmark
+    public void criarEExcluirFilme() throws Exception {
+        int id = server.createMovie("Bench " + created++, "Diretor Bench", "2024");
+        server.deleteMovie(id);
+    }
+
+    @Benchmark
+    public void editarReview() throws Exception {
+        server.updateReview(server.userReviewId(), 1 + nextId++ % 5);
+    }
+}
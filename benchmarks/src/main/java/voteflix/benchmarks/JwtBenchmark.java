@@ -0,0 +1,53 @@
+package voteflix.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtService: geração e validação de tokens. "tokenCache" = 0 mede a
+ * verificação completa da assinatura; com cache, o caminho de um token já
+ * visto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    @Param({"0", "10000"})
+    public int tokenCache;
+
+    private ServerTargets server;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = ServerTargets.load();
+        server.configureTokenCache(tokenCache);
+        token = server.generateToken(42, "usuario42", "user");
+    }
+
+    @Benchmark
+    public String gerar() {
+        return server.generateToken(42, "usuario42", "user");
+    }
+
+    @Benchmark
+    public Object validar() {
+        return server.validateToken(token);
+    }
+}
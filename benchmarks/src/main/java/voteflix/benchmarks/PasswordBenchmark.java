@@ -0,0 +1,50 @@
+package voteflix.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PasswordService.hashPassword (LOGIN, CRIAR_USUARIO e troca de senha).
+ * "paralelo" roda com 4 threads para mostrar o custo sob concorrência.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordBenchmark {
+
+    @Param({"admin", "senha-bem-mais-longa-que-o-normal"})
+    public String senha;
+
+    private ServerTargets server;
+
+    @Setup
+    public void setUp() {
+        server = ServerTargets.load();
+    }
+
+    @Benchmark
+    public String hash() {
+        return server.hashPassword(senha);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String hashParalelo() {
+        return server.hashPassword(senha);
+    }
+}
@@ -0,0 +1,107 @@
+package voteflix.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RequestRouter.handleRequest de ponta a ponta (admissão, token, controller,
+ * banco e serialização da resposta), sem o socket.
+ *
+ * "mistura" percorre uma sequência fixa que imita o tráfego de um cliente:
+ * leituras por id e do próprio usuário na maior parte, buscas, ranking,
+ * listagens paginadas e uma edição de review. Os demais métodos medem uma
+ * operação isolada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+
+    @Param({"1000", "10000"})
+    public int catalogSize;
+
+    private ServerTargets server;
+    private String[] mix;
+    private String findById;
+    private String search;
+    private String listPage;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = ServerTargets.load();
+        server.start(catalogSize);
+        String user = server.userToken();
+
+        List<String> requests = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            requests.add(request("BUSCAR_FILME_ID", user).put("id_filme", String.valueOf(1 + i * catalogSize / 4)).toString());
+        }
+        requests.add(request("LISTAR_PROPRIO_USUARIO", user).toString());
+        requests.add(request("LISTAR_PROPRIO_USUARIO", user).toString());
+        requests.add(request("BUSCAR_FILMES", user).put("titulo", "Filme 00").put("limite", "20").toString());
+        requests.add(request("BUSCAR_FILMES", user).put("genero", new JSONArray().put("Drama")).put("limite", "20").toString());
+        requests.add(request("RANKING_FILMES", user).toString());
+        requests.add(request("LISTAR_FILMES", user).put("limite", "20").toString());
+        requests.add(request("LISTAR_REVIEWS_USUARIO", user).put("limite", "20").toString());
+        requests.add(request("EDITAR_REVIEW", user).put("review", new JSONObject()
+                .put("id", String.valueOf(server.userReviewId())).put("nota", "4")
+                .put("titulo", "Review editada").put("descricao", "Texto")).toString());
+        mix = requests.toArray(new String[0]);
+
+        findById = mix[0];
+        search = mix[6];
+        listPage = mix[9];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    private static JSONObject request(String operacao, String token) {
+        return new JSONObject().put("operacao", operacao).put("token", token);
+    }
+
+    @Benchmark
+    public int mistura() throws Exception {
+        String line = mix[next];
+        next = next + 1 == mix.length ? 0 : next + 1;
+        return server.route(line);
+    }
+
+    @Benchmark
+    public int buscarFilmeId() throws Exception {
+        return server.route(findById);
+    }
+
+    @Benchmark
+    public int buscarFilmes() throws Exception {
+        return server.route(search);
+    }
+
+    @Benchmark
+    public int listarFilmesPagina() throws Exception {
+        return server.route(listPage);
+    }
+}
@@ -0,0 +1,60 @@
+package voteflix.benchmarks;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão de uma linha de filme em JSON (DatabaseService.resultSetToMovieJson)
+ * e a serialização dela, sem o banco: a linha vem de um SimpleResultSet do H2
+ * com as mesmas colunas da consulta de filmes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ServerTargets server;
+    private SimpleResultSet row;
+
+    @Setup
+    public void setUp() {
+        server = ServerTargets.load();
+        row = new SimpleResultSet();
+        row.setAutoClose(false); // Permite voltar ao início a cada invocação
+        row.addColumn("id", Types.INTEGER, 10, 0);
+        row.addColumn("titulo", Types.VARCHAR, 30, 0);
+        row.addColumn("diretor", Types.VARCHAR, 30, 0);
+        row.addColumn("ano", Types.VARCHAR, 4, 0);
+        row.addColumn("generos", Types.ARRAY, 0, 0);
+        row.addColumn("sinopse", Types.VARCHAR, 250, 0);
+        row.addColumn("nota_media", Types.DECIMAL, 3, 1);
+        row.addColumn("qtd_avaliacoes", Types.INTEGER, 10, 0);
+        row.addRow(1234, "O Poderoso Chefão", "Francis Ford Coppola", "1972",
+                new Object[] {"Drama", "Policial"},
+                "Patriarca de uma família mafiosa transfere o controle do império ao filho relutante.",
+                new BigDecimal("4.7"), 321);
+    }
+
+    @Benchmark
+    public String linhaDeFilme() throws Exception {
+        row.beforeFirst();
+        row.next();
+        return server.movieRowJson(row);
+    }
+}
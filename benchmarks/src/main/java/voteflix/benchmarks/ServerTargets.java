@@ -0,0 +1,75 @@
+package voteflix.benchmarks;
+
+import org.json.JSONArray;
+
+import java.sql.ResultSet;
+
+/**
+ * Ponte entre os benchmarks e o código do servidor.
+ *
+ * O JMH não aceita benchmarks no pacote padrão, e classes de um pacote nomeado
+ * não enxergam as do pacote padrão (onde fica todo o servidor). A implementação
+ * ({@code BenchmarkTargets}, no pacote padrão) chama o servidor diretamente;
+ * os benchmarks a obtêm uma vez por {@link #load()} e chamam pela interface,
+ * uma chamada monomórfica que o JIT inlina.
+ */
+public interface ServerTargets {
+
+    static ServerTargets load() {
+        try {
+            return (ServerTargets) Class.forName("BenchmarkTargets").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkTargets não encontrado no classpath", e);
+        }
+    }
+
+    /**
+     * Sobe o servidor sem sockets sobre um H2 em memória novo, com
+     * {@code catalogSize} filmes, um usuário comum e reviews dele.
+     */
+    void start(int catalogSize) throws Exception;
+
+    /** Fecha o pool e descarta o banco em memória. */
+    void stop() throws Exception;
+
+    String adminToken();
+
+    String userToken();
+
+    /** Id de uma review do usuário comum (para EDITAR_REVIEW). */
+    int userReviewId();
+
+    /** RequestRouter.handleRequest seguido da serialização da resposta; devolve o tamanho em chars. */
+    int route(String requestLine) throws Exception;
+
+    String generateToken(int id, String username, String role);
+
+    /** Valida o token e devolve os claims. */
+    Object validateToken(String token);
+
+    /** Tamanho do cache de tokens verificados (0 desliga). */
+    void configureTokenCache(int size);
+
+    String hashPassword(String password);
+
+    String validateMovie(String titulo, String diretor, String ano, String sinopse, JSONArray generos);
+
+    /** Linha atual do ResultSet convertida como no DatabaseService e serializada. */
+    String movieRowJson(ResultSet rs) throws Exception;
+
+    // --- DatabaseService ---
+
+    String findMovie(int id) throws Exception;
+
+    int listAllMovies() throws Exception;
+
+    int listMoviesPage(int limite) throws Exception;
+
+    int createMovie(String titulo, String diretor, String ano) throws Exception;
+
+    void updateMovie(int id, String titulo, String diretor, String ano) throws Exception;
+
+    void deleteMovie(int id) throws Exception;
+
+    void updateReview(int idReview, int nota) throws Exception;
+}
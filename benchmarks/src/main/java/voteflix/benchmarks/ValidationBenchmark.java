@@ -0,0 +1,48 @@
+package voteflix.benchmarks;
+
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ValidationService.validateMovie com um filme válido (caminho completo) e
+ * com um inválido logo no primeiro campo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private ServerTargets server;
+    private JSONArray generos;
+
+    @Setup
+    public void setUp() {
+        server = ServerTargets.load();
+        generos = new JSONArray().put("Ação").put("Ficção Científica");
+    }
+
+    @Benchmark
+    public String filmeValido() {
+        return server.validateMovie("O Poderoso Chefão", "Francis Ford Coppola", "1972",
+                "A saga da família Corleone.", generos);
+    }
+
+    @Benchmark
+    public String filmeInvalido() {
+        return server.validateMovie("", "Francis Ford Coppola", "1972", "A saga da família Corleone.", generos);
+    }
+}
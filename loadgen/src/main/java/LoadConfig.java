@@ -0,0 +1,140 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opções do gerador de carga (--opcao=valor, como no servidor).
+ */
+public class LoadConfig {
+
+    public static final String MODE_OPEN = "open";
+    public static final String MODE_CLOSED = "closed";
+
+    // Mistura padrão: maioria leituras, como um cliente navegando no catálogo
+    private static final String DEFAULT_MIX = "BUSCAR_FILME_ID:35,LISTAR_FILMES:10,BUSCAR_FILMES:15,RANKING_FILMES:5," +
+            "LISTAR_PROPRIO_USUARIO:10,LISTAR_REVIEWS_USUARIO:10,CRIAR_REVIEW:5,EDITAR_REVIEW:7,EXCLUIR_REVIEW:3";
+
+    private String host = "127.0.0.1";
+    private int port = 12345;
+    private int users = 20;
+    private String mode = MODE_OPEN;
+    private double rate = 200;
+    private long thinkMs = 0;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 5;
+    private Map<String, Integer> mix = parseMix(DEFAULT_MIX);
+    private int movies = 100;
+    private String userPrefix = "carga";
+    private String password = "carga123";
+    private String adminUser = "admin";
+    private String adminPassword = "admin";
+    private int timeoutMs = 10_000;
+    private long seed = 42;
+    private String jsonFile = null;
+
+    public static String usage() {
+        return "Uso: java -jar loadgen.jar [opções]\n" +
+                "  --host=HOST               servidor (padrão 127.0.0.1)\n" +
+                "  --port=N                  porta (padrão 12345)\n" +
+                "  --users=N                 usuários virtuais, cada um com sua conexão (padrão 20)\n" +
+                "  --mode=open|closed        laço aberto (taxa fixa) ou fechado (padrão open)\n" +
+                "  --rate=N                  requisições por segundo no total, laço aberto (padrão 200)\n" +
+                "  --think-ms=N              pausa entre requisições de um usuário, laço fechado (padrão 0);\n" +
+                "                            a latência corrigida conta as requisições que sairiam a cada\n" +
+                "                            N ms mais o tempo de serviço médio da operação\n" +
+                "  --duration-s=N            duração da medição (padrão 30)\n" +
+                "  --warmup-s=N              aquecimento antes da medição, não entra no relatório (padrão 5)\n" +
+                "  --mix=OP:PESO,...         mistura de operações (padrão " + DEFAULT_MIX + ")\n" +
+                "  --movies=N                filmes mínimos no catálogo; o ADM cadastra os que faltarem (padrão 100)\n" +
+                "  --user-prefix=NOME        prefixo dos usuários virtuais (padrão carga)\n" +
+                "  --password=SENHA          senha dos usuários virtuais (padrão carga123)\n" +
+                "  --admin-user=NOME         ADM usado para semear o catálogo (padrão admin)\n" +
+                "  --admin-password=SENHA    (padrão admin)\n" +
+                "  --timeout-ms=N            espera máxima por uma resposta (padrão 10000)\n" +
+                "  --seed=N                  semente dos sorteios (padrão 42)\n" +
+                "  --json=ARQUIVO            grava o relatório também em JSON";
+    }
+
+    public static LoadConfig fromArgs(String[] args) {
+        LoadConfig config = new LoadConfig();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Opção inválida: " + arg);
+            }
+            config.set(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return config;
+    }
+
+    private void set(String key, String value) {
+        try {
+            switch (key) {
+                case "host": host = value; break;
+                case "port": port = Integer.parseInt(value); break;
+                case "users": users = Integer.parseInt(value); break;
+                case "mode":
+                    if (!MODE_OPEN.equals(value) && !MODE_CLOSED.equals(value)) {
+                        throw new IllegalArgumentException("Modo inválido: " + value);
+                    }
+                    mode = value;
+                    break;
+                case "rate": rate = Double.parseDouble(value); break;
+                case "think-ms": thinkMs = Long.parseLong(value); break;
+                case "duration-s": durationSeconds = Integer.parseInt(value); break;
+                case "warmup-s": warmupSeconds = Integer.parseInt(value); break;
+                case "mix": mix = parseMix(value); break;
+                case "movies": movies = Integer.parseInt(value); break;
+                case "user-prefix": userPrefix = value; break;
+                case "password": password = value; break;
+                case "admin-user": adminUser = value; break;
+                case "admin-password": adminPassword = value; break;
+                case "timeout-ms": timeoutMs = Integer.parseInt(value); break;
+                case "seed": seed = Long.parseLong(value); break;
+                case "json": jsonFile = value; break;
+                default: throw new IllegalArgumentException("Opção desconhecida: " + key);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para " + key + ": " + value);
+        }
+        if (users < 1 || rate <= 0 || durationSeconds < 1 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("Valor fora do intervalo para " + key + ": " + value);
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split(":");
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            if (weight > 0) weights.put(pair[0].trim().toUpperCase(), weight);
+        }
+        if (weights.isEmpty()) throw new IllegalArgumentException("Mistura vazia: " + value);
+        return weights;
+    }
+
+    public String getHost() { return host; }
+    public int getPort() { return port; }
+    public int getUsers() { return users; }
+    public boolean isOpenLoop() { return MODE_OPEN.equals(mode); }
+    public String getMode() { return mode; }
+    public double getRate() { return rate; }
+    public long getThinkMs() { return thinkMs; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public int getWarmupSeconds() { return warmupSeconds; }
+    public Map<String, Integer> getMix() { return mix; }
+    public int getMovies() { return movies; }
+    public String getUserPrefix() { return userPrefix; }
+    public String getPassword() { return password; }
+    public String getAdminUser() { return adminUser; }
+    public String getAdminPassword() { return adminPassword; }
+    public int getTimeoutMs() { return timeoutMs; }
+    public long getSeed() { return seed; }
+    public String getJsonFile() { return jsonFile; }
+
+    @Override
+    public String toString() {
+        return "host=" + host + ":" + port + ", users=" + users + ", mode=" + mode +
+                (isOpenLoop() ? ", rate=" + rate + "/s" : ", think-ms=" + thinkMs) +
+                ", duration-s=" + durationSeconds + ", warmup-s=" + warmupSeconds + ", mix=" + mix;
+    }
+}
@@ -0,0 +1,257 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gerador de carga para o VoteFlixServer: fala o protocolo de linhas JSON,
+ * cadastra e loga N usuários virtuais e dispara a mistura de operações
+ * configurada, em laço aberto (taxa fixa, latência medida a partir da hora
+ * marcada) ou fechado (cada usuário espera a resposta e a pausa antes da
+ * próxima). No fim imprime vazão e percentis por operação.
+ *
+ * Para medir capacidade, inicie o servidor sem limites por cliente:
+ *   java -jar VoteFlixServer.jar --port=12345 --rate-read=0 --rate-heavy=0
+ *   java -jar loadgen.jar --port=12345 --users=50 --rate=1000 --duration-s=60
+ */
+public class LoadGenerator {
+
+    private static final int LOGIN_THREADS = 16;
+
+    public static void main(String[] args) {
+        LoadConfig config;
+        try {
+            config = LoadConfig.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadConfig.usage());
+            System.exit(2);
+            return;
+        }
+
+        try {
+            System.out.println("[CARGA] Configuração: " + config);
+            new LoadGenerator().run(config);
+        } catch (Exception e) {
+            System.err.println("[CARGA] Falha: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void run(LoadConfig config) throws Exception {
+        List<VirtualUser.Movie> movies = prepareCatalog(config);
+        System.out.println("[CARGA] Catálogo com " + movies.size() + " filmes");
+
+        OperationMix mix = new OperationMix(config.getMix());
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < config.getUsers(); i++) {
+            String name = String.format("%s%04d", config.getUserPrefix(), i);
+            users.add(new VirtualUser(config, name, movies, mix, config.getSeed() + i));
+        }
+        try {
+            loginAll(users);
+            System.out.println("[CARGA] " + users.size() + " usuários conectados");
+            measure(config, users);
+        } finally {
+            users.forEach(VirtualUser::close);
+        }
+    }
+
+    /**
+     * Garante pelo menos --movies filmes (o ADM cadastra os que faltarem) e
+     * devolve a lista que os usuários virtuais vão sortear.
+     */
+    private List<VirtualUser.Movie> prepareCatalog(LoadConfig config) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(config.getHost(), config.getPort()), config.getTimeoutMs());
+            socket.setSoTimeout(config.getTimeoutMs());
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+            JSONObject login = call(reader, writer, new JSONObject().put("operacao", "LOGIN")
+                    .put("usuario", config.getAdminUser()).put("senha", config.getAdminPassword()));
+            if (!"200".equals(login.optString("status"))) {
+                throw new IOException("login do ADM recusado: " + login);
+            }
+            String token = login.getString("token");
+
+            JSONArray filmes = listMovies(reader, writer, token);
+            for (int i = filmes.length(), n = 0; i < config.getMovies(); n++) {
+                JSONObject filme = new JSONObject()
+                        .put("titulo", String.format("Carga %05d", n))
+                        .put("diretor", "Diretor " + (n % 50))
+                        .put("ano", String.valueOf(1950 + n % 75))
+                        .put("genero", new JSONArray().put(n % 2 == 0 ? "Drama" : "Comédia"))
+                        .put("sinopse", "Filme cadastrado pelo teste de carga");
+                JSONObject created = call(reader, writer, new JSONObject().put("operacao", "CRIAR_FILME")
+                        .put("token", token).put("filme", filme));
+                String status = created.optString("status");
+                if ("201".equals(status)) {
+                    i++;
+                } else if (!"409".equals(status)) { // 409: sobrou de uma execução anterior
+                    throw new IOException("CRIAR_FILME recusado: " + created);
+                }
+            }
+            if (filmes.length() < config.getMovies()) filmes = listMovies(reader, writer, token);
+
+            List<VirtualUser.Movie> movies = new ArrayList<>();
+            for (int i = 0; i < filmes.length(); i++) {
+                JSONObject filme = filmes.getJSONObject(i);
+                movies.add(new VirtualUser.Movie(String.valueOf(filme.get("id")), filme.optString("titulo")));
+            }
+            if (movies.isEmpty()) throw new IOException("catálogo vazio");
+
+            call(reader, writer, new JSONObject().put("operacao", "LOGOUT").put("token", token));
+            return movies;
+        }
+    }
+
+    private JSONArray listMovies(BufferedReader reader, BufferedWriter writer, String token) throws IOException {
+        JSONObject response = call(reader, writer, new JSONObject().put("operacao", "LISTAR_FILMES").put("token", token));
+        if (!"200".equals(response.optString("status"))) {
+            throw new IOException("LISTAR_FILMES falhou: " + response);
+        }
+        return response.getJSONArray("filmes");
+    }
+
+    private static JSONObject call(BufferedReader reader, BufferedWriter writer, JSONObject request) throws IOException {
+        writer.write(request.toString());
+        writer.newLine();
+        writer.flush();
+        String line = reader.readLine();
+        if (line == null) throw new IOException("conexão fechada pelo servidor");
+        return new JSONObject(line);
+    }
+
+    /** Conecta e loga em paralelo: o hash de senha do servidor domina esta fase. */
+    private void loginAll(List<VirtualUser> users) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(LOGIN_THREADS, users.size()));
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (VirtualUser user : users) {
+                results.add(pool.submit((Callable<Void>) () -> {
+                    user.connect();
+                    user.login();
+                    return null;
+                }));
+            }
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("preparação dos usuários: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void measure(LoadConfig config, List<VirtualUser> users) throws Exception {
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        long measureStart = start + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+
+        // Laço aberto: cada usuário fica com rate/N, com as agendas defasadas
+        // para as requisições não saírem todas juntas
+        long interval = config.isOpenLoop() ? Math.round(1e9 * users.size() / config.getRate()) : 0;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            VirtualUser user = users.get(i);
+            user.schedule(measureStart, end, start + interval * i / users.size(), interval);
+            Thread thread = new Thread(user, "carga-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+
+        System.out.println("[CARGA] Aquecimento de " + config.getWarmupSeconds() + " s, medição de " + config.getDurationSeconds() + " s");
+        threads.forEach(Thread::start);
+        long deadline = end + TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMs()) + TimeUnit.SECONDS.toNanos(1);
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        users.forEach(VirtualUser::close); // Destrava quem ainda espera resposta
+
+        Map<String, OperationStats> byOperation = new TreeMap<>();
+        long maxLag = 0;
+        for (VirtualUser user : users) {
+            user.getStats().forEach((op, stats) -> byOperation.computeIfAbsent(op, k -> new OperationStats()).add(stats));
+            maxLag = Math.max(maxLag, user.getMaxLagNanos());
+        }
+        report(config, byOperation, maxLag);
+    }
+
+    private void report(LoadConfig config, Map<String, OperationStats> byOperation, long maxLagNanos) throws IOException {
+        double seconds = config.getDurationSeconds();
+        OperationStats total = new OperationStats();
+        byOperation.values().forEach(total::add);
+
+        System.out.println();
+        System.out.println("[CARGA] Resultado (" + (config.isOpenLoop()
+                ? "laço aberto, alvo de " + config.getRate() + " req/s"
+                : "laço fechado, pausa de " + config.getThinkMs() + " ms") + ", " + config.getUsers() + " usuários)");
+        System.out.println(config.isOpenLoop()
+                ? "Latência em ms; \"corrigida\" inclui a espera desde a hora marcada (omissão coordenada)"
+                : "Latência em ms; \"corrigida\" inclui as requisições que deixaram de sair durante respostas lentas");
+        System.out.println(String.format("%-24s %8s %8s %7s | %8s %8s %8s %8s %8s | %8s %8s",
+                "operação", "total", "req/s", "erros", "p50", "p90", "p99", "p99.9", "max", "p50 serv", "p99 serv"));
+        byOperation.forEach((op, stats) -> System.out.println(row(op, stats, seconds)));
+        System.out.println(row("TOTAL", total, seconds));
+
+        if (total.getStatusCount("429") > 0) {
+            System.out.println("[CARGA] Aviso: " + total.getStatusCount("429") + " respostas 429 (limite por cliente); "
+                    + "para medir capacidade inicie o servidor com --rate-read=0 --rate-heavy=0");
+        }
+        if (total.getStatusCount("503") > 0) {
+            System.out.println("[CARGA] Aviso: " + total.getStatusCount("503") + " respostas 503 (servidor descartando carga)");
+        }
+        double achieved = total.getCompleted() / seconds;
+        if (config.isOpenLoop() && achieved < config.getRate() * 0.95) {
+            System.out.println(String.format("[CARGA] Aviso: taxa alvo não atingida (%.1f de %.1f req/s, atraso máximo %.1f ms); "
+                    + "o servidor saturou ou faltam usuários (--users)", achieved, config.getRate(), maxLagNanos / 1e6));
+        }
+
+        if (config.getJsonFile() != null) {
+            JSONObject json = new JSONObject();
+            json.put("configuracao", config.toString());
+            json.put("duracao_s", config.getDurationSeconds());
+            json.put("atraso_maximo_ms", OperationStats.millis(maxLagNanos / 1_000));
+            JSONObject operacoes = new JSONObject();
+            byOperation.forEach((op, stats) -> operacoes.put(op, stats.toJson(seconds)));
+            json.put("operacoes", operacoes);
+            json.put("total", total.toJson(seconds));
+            Files.write(Paths.get(config.getJsonFile()), json.toString(2).getBytes(StandardCharsets.UTF_8));
+            System.out.println("[CARGA] Relatório gravado em " + config.getJsonFile());
+        }
+    }
+
+    private static String row(String op, OperationStats stats, double seconds) {
+        LoadHistogram corrected = stats.getCorrected();
+        LoadHistogram service = stats.getService();
+        return String.format("%-24s %8d %8.1f %7d | %8.2f %8.2f %8.2f %8.2f %8.2f | %8.2f %8.2f",
+                op, stats.getCompleted(), stats.getCompleted() / seconds, stats.getErrors(),
+                OperationStats.millis(corrected.percentile(0.50)), OperationStats.millis(corrected.percentile(0.90)),
+                OperationStats.millis(corrected.percentile(0.99)), OperationStats.millis(corrected.percentile(0.999)),
+                OperationStats.millis(corrected.max()),
+                OperationStats.millis(service.percentile(0.50)), OperationStats.millis(service.percentile(0.99)));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Histograma de latência em microssegundos, com os mesmos buckets
+ * log-lineares do servidor (~3% de erro). Cada usuário virtual grava nos seus
+ * próprios histogramas, sem concorrência; no fim eles são somados com
+ * {@link #add}.
+ */
+public final class LoadHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int LINEAR = 1 << SUB_BITS;
+    private static final int HALF = LINEAR >> 1;
+    private static final int MAX_SHIFT = 34;
+    private static final int BUCKETS = MAX_SHIFT * HALF + LINEAR;
+    private static final long MAX_VALUE = ((long) LINEAR << MAX_SHIFT) - 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long sum;
+    private long max;
+
+    public void record(long micros) {
+        long value = Math.min(Math.max(0, micros), MAX_VALUE);
+        counts[indexOf(value)]++;
+        total++;
+        sum += value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Correção de omissão coordenada para laço fechado (como o
+     * recordValueWithExpectedInterval do HdrHistogram): uma resposta que
+     * demorou mais que o intervalo esperado entre requisições também conta as
+     * requisições que o cliente deixou de enviar enquanto esperava, com as
+     * latências que elas teriam visto. O intervalo tem de incluir o tempo de
+     * serviço normal: só a pausa faria toda resposta gerar amostras menores
+     * que ela mesma e puxaria os percentis para baixo.
+     */
+    public void recordCorrected(long micros, long expectedIntervalMicros) {
+        record(micros);
+        if (expectedIntervalMicros <= 0) return;
+        for (long missing = micros - expectedIntervalMicros; missing >= expectedIntervalMicros; missing -= expectedIntervalMicros) {
+            record(missing);
+        }
+    }
+
+    public void add(LoadHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+        total += other.total;
+        sum += other.sum;
+        if (other.max > max) max = other.max;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public long mean() {
+        return total > 0 ? sum / total : 0;
+    }
+
+    /** Percentil (0..1) em microssegundos: o maior valor do bucket onde ele cai. */
+    public long percentile(double quantile) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < LINEAR) return (int) micros;
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BITS - 1);
+        return shift * HALF + (int) (micros >>> shift);
+    }
+
+    private static long upperBound(int index) {
+        if (index < LINEAR) return index;
+        int shift = index / HALF - 1;
+        long sub = index - shift * HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
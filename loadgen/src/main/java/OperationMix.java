@@ -0,0 +1,34 @@
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Sorteio ponderado das operações (--mix=OP:PESO,...). Imutável: todos os
+ * usuários virtuais compartilham a mesma instância, cada um com seu Random.
+ */
+public final class OperationMix {
+
+    private final String[] operations;
+    private final int[] cumulative;
+    private final int total;
+
+    public OperationMix(Map<String, Integer> weights) {
+        operations = new String[weights.size()];
+        cumulative = new int[weights.size()];
+        int sum = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            sum += entry.getValue();
+            operations[i] = entry.getKey();
+            cumulative[i++] = sum;
+        }
+        total = sum;
+    }
+
+    public String next(Random random) {
+        int pick = random.nextInt(total);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (pick < cumulative[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+}
@@ -0,0 +1,93 @@
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Contagens e latências de uma operação. "corrigida" é medida a partir da
+ * hora em que a requisição deveria ter saído (laço aberto) ou com o
+ * preenchimento do intervalo esperado, pausa mais o tempo de serviço médio
+ * (laço fechado); "servico" só do envio até a resposta, que é o que o
+ * cliente ingênuo mediria.
+ */
+public final class OperationStats {
+
+    private final LoadHistogram corrected = new LoadHistogram();
+    private final LoadHistogram service = new LoadHistogram();
+    private final Map<String, Long> statuses = new TreeMap<>();
+    private long completed;
+    private long ok;
+    private long failures;
+
+    public void record(String status, long correctedMicros, long serviceMicros, long expectedIntervalMicros) {
+        completed++;
+        if (status.startsWith("2")) ok++;
+        statuses.merge(status, 1L, Long::sum);
+        corrected.recordCorrected(correctedMicros, expectedIntervalMicros);
+        service.record(serviceMicros);
+    }
+
+    /** Conexão perdida ou tempo esgotado: sem resposta para medir. */
+    public void recordFailure() {
+        failures++;
+    }
+
+    public void add(OperationStats other) {
+        corrected.add(other.corrected);
+        service.add(other.service);
+        other.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+        completed += other.completed;
+        ok += other.ok;
+        failures += other.failures;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getOk() {
+        return ok;
+    }
+
+    public long getErrors() {
+        return completed - ok + failures;
+    }
+
+    public long getStatusCount(String status) {
+        return statuses.getOrDefault(status, 0L);
+    }
+
+    public LoadHistogram getCorrected() {
+        return corrected;
+    }
+
+    public LoadHistogram getService() {
+        return service;
+    }
+
+    public JSONObject toJson(double seconds) {
+        JSONObject json = new JSONObject();
+        json.put("total", completed);
+        json.put("ok", ok);
+        json.put("falhas_conexao", failures);
+        json.put("vazao_por_s", Math.round(completed / seconds * 10) / 10.0);
+        json.put("status", new JSONObject(statuses));
+        json.put("latencia_corrigida_ms", latencyJson(corrected));
+        json.put("latencia_servico_ms", latencyJson(service));
+        return json;
+    }
+
+    private static JSONObject latencyJson(LoadHistogram histogram) {
+        return new JSONObject()
+                .put("p50", millis(histogram.percentile(0.50)))
+                .put("p90", millis(histogram.percentile(0.90)))
+                .put("p99", millis(histogram.percentile(0.99)))
+                .put("p99_9", millis(histogram.percentile(0.999)))
+                .put("max", millis(histogram.max()))
+                .put("media", millis(histogram.mean()));
+    }
+
+    static double millis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+}
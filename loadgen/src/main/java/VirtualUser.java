@@ -0,0 +1,336 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Um usuário virtual: uma conexão, um token e as reviews que ele conhece.
+ * Envia uma requisição por vez (sem id_requisicao), como o cliente da
+ * disciplina, e grava as latências em {@link OperationStats} próprios que o
+ * {@link LoadGenerator} soma no fim.
+ */
+public class VirtualUser implements Runnable, Closeable {
+
+    private static final String[] TITULOS = {"Recomendo", "Assistiria de novo", "Mediano", "Decepcionante", "Obra-prima"};
+
+    private final LoadConfig config;
+    private final String name;
+    private final List<Movie> movies;
+    private final OperationMix mix;
+    private final Random random;
+
+    private Socket socket;
+    private BufferedReader reader;
+    private BufferedWriter writer;
+    private String token;
+
+    // Estado das reviews do usuário, para CRIAR/EDITAR/EXCLUIR fazerem sentido
+    private final Map<String, String> reviewMovie = new HashMap<>(); // id da review -> id do filme
+    private final List<String> reviewIds = new ArrayList<>();
+    private final Set<String> reviewedMovies = new HashSet<>();
+    private boolean reviewsStale;
+
+    private final Map<String, OperationStats> stats = new HashMap<>();
+
+    // Laço fechado: soma e quantidade dos tempos de serviço de cada operação
+    // (aquecimento incluído), base do intervalo esperado entre envios
+    private final Map<String, long[]> serviceTotals = new HashMap<>();
+
+    // Janela de medição e agenda, definidas pelo LoadGenerator antes do start
+    private long measureStartNanos;
+    private long endNanos;
+    private long firstSendNanos;
+    private long intervalNanos;
+    private long maxLagNanos;
+
+    public VirtualUser(LoadConfig config, String name, List<Movie> movies, OperationMix mix, long seed) {
+        this.config = config;
+        this.name = name;
+        this.movies = movies;
+        this.mix = mix;
+        this.random = new Random(seed);
+    }
+
+    public void connect() throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(config.getHost(), config.getPort()), config.getTimeoutMs());
+        socket.setSoTimeout(config.getTimeoutMs());
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /** Cria o usuário (se ainda não existir), faz login e carrega as reviews dele. */
+    public void login() throws IOException {
+        JSONObject usuario = new JSONObject().put("nome", name).put("senha", config.getPassword());
+        JSONObject created = call(new JSONObject().put("operacao", "CRIAR_USUARIO").put("usuario", usuario));
+        String status = created.optString("status");
+        if (!"201".equals(status) && !"409".equals(status)) {
+            throw new IOException("CRIAR_USUARIO " + name + ": " + created);
+        }
+        JSONObject login = call(new JSONObject().put("operacao", "LOGIN")
+                .put("usuario", name).put("senha", config.getPassword()));
+        if (!"200".equals(login.optString("status"))) {
+            throw new IOException("LOGIN " + name + ": " + login);
+        }
+        token = login.getString("token");
+        loadReviews(call(request("LISTAR_REVIEWS_USUARIO")));
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Laço aberto: a i-ésima requisição do usuário tem hora marcada
+     * (firstSend + i * interval) e a latência corrigida é medida a partir
+     * dela, não do envio real. Se o servidor atrasa, as próximas saem
+     * atrasadas e o atraso entra na medida, em vez de sumir (omissão
+     * coordenada). Sem interval, o usuário trabalha em laço fechado.
+     */
+    public void schedule(long measureStartNanos, long endNanos, long firstSendNanos, long intervalNanos) {
+        this.measureStartNanos = measureStartNanos;
+        this.endNanos = endNanos;
+        this.firstSendNanos = firstSendNanos;
+        this.intervalNanos = intervalNanos;
+    }
+
+    @Override
+    public void run() {
+        long intended = firstSendNanos;
+        long thinkNanos = TimeUnit.MILLISECONDS.toNanos(config.getThinkMs());
+        try {
+            while (true) {
+                if (intervalNanos > 0) {
+                    waitUntil(intended);
+                } else {
+                    intended = System.nanoTime();
+                }
+                long sent = System.nanoTime();
+                if (intended >= endNanos || sent >= endNanos) break;
+                if (sent >= measureStartNanos) maxLagNanos = Math.max(maxLagNanos, sent - intended);
+                execute(mix.next(random), intended, sent);
+
+                if (intervalNanos > 0) {
+                    intended += intervalNanos;
+                } else if (thinkNanos > 0) {
+                    LockSupport.parkNanos(thinkNanos);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[CARGA] " + name + " parou: " + e.getMessage());
+        }
+    }
+
+    public Map<String, OperationStats> getStats() {
+        return stats;
+    }
+
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (socket != null) socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Monta e envia uma operação, grava a latência e atualiza o estado local.
+     * Operações de review sem alvo viram LISTAR_REVIEWS_USUARIO, que é o que
+     * um cliente de verdade faria para descobrir os ids.
+     */
+    private void execute(String operacao, long intended, long sent) throws IOException {
+        JSONObject request = build(operacao);
+        if (request == null) {
+            operacao = "LISTAR_REVIEWS_USUARIO";
+            request = request(operacao);
+        }
+
+        JSONObject response;
+        long done;
+        try {
+            writer.write(request.toString());
+            writer.newLine();
+            writer.flush();
+            String line = reader.readLine();
+            done = System.nanoTime();
+            if (line == null) throw new IOException("conexão fechada pelo servidor");
+            response = new JSONObject(line);
+        } catch (IOException e) {
+            if (sent >= measureStartNanos) {
+                stats.computeIfAbsent(operacao, k -> new OperationStats()).recordFailure();
+            }
+            throw e;
+        }
+
+        String status = response.optString("status", "500");
+        long serviceMicros = (done - sent) / 1_000;
+        long expected = intervalNanos > 0 ? 0 : expectedIntervalMicros(operacao, serviceMicros);
+        // Conta o que saiu durante a medição, inclusive atrasos acumulados no aquecimento
+        if (sent >= measureStartNanos) {
+            OperationStats opStats = stats.computeIfAbsent(operacao, k -> new OperationStats());
+            opStats.record(status, (done - intended) / 1_000, serviceMicros, expected);
+        }
+        apply(operacao, request, response, status);
+    }
+
+    /**
+     * Intervalo esperado entre envios no laço fechado: a pausa mais o tempo
+     * de serviço médio da operação até agora (sem a amostra atual, para uma
+     * parada não inflar a própria base). Só respostas bem mais lentas que o
+     * normal geram amostras de preenchimento; sem base ainda, nenhuma.
+     */
+    private long expectedIntervalMicros(String operacao, long serviceMicros) {
+        long[] totals = serviceTotals.computeIfAbsent(operacao, k -> new long[2]);
+        long expected = totals[1] == 0 ? 0 : TimeUnit.MILLISECONDS.toMicros(config.getThinkMs()) + totals[0] / totals[1];
+        totals[0] += serviceMicros;
+        totals[1]++;
+        return expected;
+    }
+
+    private JSONObject build(String operacao) {
+        switch (operacao) {
+            case "BUSCAR_FILME_ID":
+                return request(operacao).put("id_filme", randomMovie().id);
+            case "BUSCAR_FILMES": {
+                String titulo = randomMovie().titulo;
+                int space = titulo.indexOf(' ');
+                return request(operacao).put("titulo", space > 0 ? titulo.substring(0, space) : titulo);
+            }
+            case "CRIAR_REVIEW": {
+                if (reviewsStale) return null;
+                Movie movie = unreviewedMovie();
+                if (movie == null) return null;
+                return request(operacao).put("review", reviewBody().put("id_filme", movie.id));
+            }
+            case "EDITAR_REVIEW":
+                if (reviewIds.isEmpty()) return null;
+                return request(operacao).put("review", reviewBody().put("id", randomReview()));
+            case "EXCLUIR_REVIEW":
+                if (reviewIds.isEmpty()) return null;
+                return request(operacao).put("id", randomReview());
+            default:
+                // LISTAR_FILMES, RANKING_FILMES, LISTAR_PROPRIO_USUARIO, LISTAR_REVIEWS_USUARIO e
+                // qualquer outra operação que só precise do token
+                return request(operacao);
+        }
+    }
+
+    private void apply(String operacao, JSONObject request, JSONObject response, String status) {
+        switch (operacao) {
+            case "LISTAR_REVIEWS_USUARIO":
+                if ("200".equals(status)) loadReviews(response);
+                break;
+            case "CRIAR_REVIEW":
+                // A resposta não traz o id: a review só fica editável depois da próxima listagem
+                reviewedMovies.add(request.getJSONObject("review").getString("id_filme"));
+                reviewsStale = true;
+                break;
+            case "EXCLUIR_REVIEW":
+                if ("200".equals(status) || "404".equals(status)) {
+                    String id = request.getString("id");
+                    reviewIds.remove(id);
+                    reviewedMovies.remove(reviewMovie.remove(id));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void loadReviews(JSONObject response) {
+        reviewIds.clear();
+        reviewMovie.clear();
+        reviewedMovies.clear();
+        JSONArray reviews = response.optJSONArray("reviews");
+        if (reviews != null) {
+            for (int i = 0; i < reviews.length(); i++) {
+                JSONObject review = reviews.getJSONObject(i);
+                String id = String.valueOf(review.get("id"));
+                String movieId = String.valueOf(review.get("id_filme"));
+                reviewIds.add(id);
+                reviewMovie.put(id, movieId);
+                reviewedMovies.add(movieId);
+            }
+        }
+        reviewsStale = false;
+    }
+
+    private JSONObject call(JSONObject request) throws IOException {
+        writer.write(request.toString());
+        writer.newLine();
+        writer.flush();
+        String line = reader.readLine();
+        if (line == null) throw new IOException("conexão fechada pelo servidor");
+        return new JSONObject(line);
+    }
+
+    private JSONObject request(String operacao) {
+        JSONObject request = new JSONObject().put("operacao", operacao);
+        if (token != null) request.put("token", token);
+        return request;
+    }
+
+    private JSONObject reviewBody() {
+        return new JSONObject()
+                .put("nota", String.valueOf(1 + random.nextInt(5)))
+                .put("titulo", TITULOS[random.nextInt(TITULOS.length)])
+                .put("descricao", "Review gerada pelo teste de carga");
+    }
+
+    private Movie randomMovie() {
+        return movies.get(random.nextInt(movies.size()));
+    }
+
+    private Movie unreviewedMovie() {
+        if (reviewedMovies.size() >= movies.size()) return null;
+        for (int attempt = 0; attempt < 8; attempt++) {
+            Movie movie = randomMovie();
+            if (!reviewedMovies.contains(movie.id)) return movie;
+        }
+        return null;
+    }
+
+    private String randomReview() {
+        return reviewIds.get(random.nextInt(reviewIds.size()));
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /** Filme do catálogo, como veio do LISTAR_FILMES da preparação. */
+    public static final class Movie {
+        final String id;
+        final String titulo;
+
+        public Movie(String id, String titulo) {
+            this.id = id;
+            this.titulo = titulo;
+        }
+    }
+}
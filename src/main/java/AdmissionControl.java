@@ -0,0 +1,226 @@
+import io.jsonwebtoken.JwtException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Controle de admissão, consultado pelo {@link RequestRouter} antes de cada
+ * operação. Um LOTE é admitido uma vez só, gastando uma ficha por item; os
+ * itens não passam de novo pelo limite.
+ *
+ * Limite por cliente: token buckets por IP e por usuário autenticado, com
+ * orçamentos separados para leituras simples (BUSCAR_FILME_ID, BUSCAR_FILMES,
+ * RANKING_FILMES, LISTAR_PROPRIO_USUARIO) e para o resto (listagens completas,
+ * escritas, LOGIN, CRIAR_USUARIO, IMPORTAR_FILMES, LOTE). LOGOUT e METRICAS
+ * nunca são limitados nem descartados (o custo de cada uma está em
+ * {@link Operation}). Acima do limite a
+ * resposta é 429 com "tentar_novamente_ms".
+ *
+ * Sobrecarga global ({@link #shed}, consultado pelo {@link RequestPipeline}
+ * antes de entregar a requisição aos workers): com mais requisições nos
+ * workers que --shed-backlog, ou com a espera média pelo pool de conexões
+ * acima de --shed-db-wait-ms, as operações pesadas recebem 503 sem entrar na
+ * fila; com o dobro do backlog as leituras também. Assim o servidor recusa
+ * barato em vez de enfileirar trabalho que vai estourar o tempo do cliente.
+ */
+public class AdmissionControl {
+
+    public enum Cost { LIVRE, LEITURA, PESADA }
+
+    private static final long IDLE_NANOS = 60_000_000_000L;  // Buckets parados há mais que isso são descartados
+    private static final long PURGE_NANOS = 30_000_000_000L;
+
+    private static final AdmissionControl INSTANCE = new AdmissionControl();
+
+    public static AdmissionControl getInstance() {
+        return INSTANCE;
+    }
+
+    private final DatabaseService db = DatabaseService.getInstance();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastPurge = new AtomicLong(System.nanoTime());
+
+    // Padrões iguais aos do ServerConfig; configure() troca no start
+    private volatile int rateRead = 200, burstRead = 400;
+    private volatile int rateHeavy = 50, burstHeavy = 100;
+    private volatile int shedBacklog = 512;
+    private volatile long shedDbWaitMs = 200;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder limitedByAddress = new LongAdder();
+    private final LongAdder limitedByUser = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    private AdmissionControl() {
+    }
+
+    public void configure(ServerConfig config) {
+        rateRead = config.getRateRead();
+        burstRead = Math.max(1, config.getRateReadBurst());
+        rateHeavy = config.getRateHeavy();
+        burstHeavy = Math.max(1, config.getRateHeavyBurst());
+        shedBacklog = config.getShedBacklog();
+        shedDbWaitMs = config.getShedDbWaitMs();
+        buckets.clear();
+    }
+
+    // Operação desconhecida conta como pesada: o router só recusa depois da admissão
+    public static Cost classify(Operation operation) {
+        return operation == null ? Cost.PESADA : operation.getCost();
+    }
+
+    /**
+     * Descarte por sobrecarga, antes da fila dos workers.
+     * @return null se a requisição pode ser enfileirada; senão a resposta 503.
+     */
+    public JSONObject shed(Operation operation) {
+        Cost cost = classify(operation);
+        if (cost == Cost.LIVRE || !isOverloaded(cost)) return null;
+        shed.increment();
+        return createErrorResponse(503, "Erro: Servidor sobrecarregado, tente novamente mais tarde");
+    }
+
+    /**
+     * Limite por cliente: decide se a operação pode rodar agora.
+     * @return null se admitida; senão a resposta 429 a devolver ao cliente.
+     */
+    public JSONObject admit(Operation operation, String token, ClientSession session) {
+        return admit(operation, token, session, 1);
+    }
+
+    /**
+     * Como {@link #admit(Operation, String, ClientSession)}, gastando "weight"
+     * fichas de uma vez (LOTE: uma por item). O peso é limitado ao burst, senão
+     * um lote grande nunca passaria.
+     */
+    public JSONObject admit(Operation operation, String token, ClientSession session, int weight) {
+        Cost cost = classify(operation);
+        if (cost == Cost.LIVRE) {
+            admitted.increment();
+            return null;
+        }
+
+        int rate = cost == Cost.LEITURA ? rateRead : rateHeavy;
+        if (rate <= 0) {
+            admitted.increment();
+            return null;
+        }
+        int burst = cost == Cost.LEITURA ? burstRead : burstHeavy;
+        int tokens = Math.max(1, Math.min(weight, burst));
+        long now = System.nanoTime();
+        purgeIdle(now);
+
+        String address = session.getRemoteAddress();
+        if (address != null) {
+            long waitMs = bucket("ip:" + address, cost, rate, burst).tryAcquire(now, tokens);
+            if (waitMs > 0) {
+                limitedByAddress.increment();
+                return tooManyRequests(waitMs);
+            }
+        }
+
+        UserPrincipal principal = resolveUser(token, session);
+        if (principal != null) {
+            long waitMs = bucket("usuario:" + principal.getId(), cost, rate, burst).tryAcquire(now, tokens);
+            if (waitMs > 0) {
+                limitedByUser.increment();
+                return tooManyRequests(waitMs);
+            }
+        }
+
+        admitted.increment();
+        return null;
+    }
+
+    private boolean isOverloaded(Cost cost) {
+        int backlog = RequestPipeline.backlog();
+        if (shedBacklog > 0) {
+            if (backlog > 2L * shedBacklog) return true;
+            if (cost == Cost.PESADA && backlog > shedBacklog) return true;
+        }
+        if (cost == Cost.PESADA && shedDbWaitMs > 0) {
+            // A média só cai com novas esperas: sem ninguém na fila do pool o banco não é o gargalo
+            return db.getPoolWaitingCount() > 0 && db.getRecentPoolWaitMs() > shedDbWaitMs;
+        }
+        return false;
+    }
+
+    // Token inválido não é problema daqui: o controller responde 401 em seguida
+    private UserPrincipal resolveUser(String token, ClientSession session) {
+        if (token == null) return null;
+        try {
+            return session.authenticate(token);
+        } catch (JwtException e) {
+            return null;
+        }
+    }
+
+    private TokenBucket bucket(String client, Cost cost, int rate, int burst) {
+        return buckets.computeIfAbsent(client + "|" + cost, k -> new TokenBucket(rate, burst));
+    }
+
+    // No máximo uma varredura a cada PURGE_NANOS, feita por quem ganhar o CAS
+    private void purgeIdle(long now) {
+        long last = lastPurge.get();
+        if (now - last < PURGE_NANOS || !lastPurge.compareAndSet(last, now)) return;
+        Iterator<TokenBucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().idleSince(now) > IDLE_NANOS) it.remove();
+        }
+    }
+
+    private JSONObject tooManyRequests(long waitMs) {
+        return createErrorResponse(429, "Erro: Limite de requisições excedido, tente novamente mais tarde")
+                .put("tentar_novamente_ms", String.valueOf(waitMs));
+    }
+
+    public JSONObject getStats() {
+        return new JSONObject()
+                .put("admitidas", admitted.sum())
+                .put("limitadas_ip", limitedByAddress.sum())
+                .put("limitadas_usuario", limitedByUser.sum())
+                .put("descartadas_sobrecarga", shed.sum())
+                .put("buckets", buckets.size())
+                .put("pendentes", RequestPipeline.backlog());
+    }
+
+    private JSONObject createErrorResponse(int status, String message) {
+        return new JSONObject().put("status", String.valueOf(status)).put("mensagem", message);
+    }
+
+    /** Bucket de um cliente: enche "rate" fichas por segundo até "burst"; cada operação gasta uma (LOTE, uma por item). */
+    private static final class TokenBucket {
+        private final double perNano;
+        private final int burst;
+        private double tokens;
+        private long last;
+
+        TokenBucket(int rate, int burst) {
+            this.perNano = rate / 1_000_000_000.0;
+            this.burst = burst;
+            this.tokens = burst;
+            this.last = System.nanoTime();
+        }
+
+        // 0 se havia "count" fichas; senão quantos ms até juntar todas
+        synchronized long tryAcquire(long now, int count) {
+            if (now > last) {
+                tokens = Math.min(burst, tokens + (now - last) * perNano);
+                last = now;
+            }
+            if (tokens >= count) {
+                tokens -= count;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((count - tokens) / perNano / 1_000_000));
+        }
+
+        synchronized long idleSince(long now) {
+            return now - last;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.sql.SQLException;
+
+/**
+ * Operação: LOTE
+ *
+ * Executa várias requisições comuns numa só ida e volta:
+ * {"operacao":"LOTE","token":"...","atomico":false,"requisicoes":[{...},{...}]}
+ * Cada item passa pelo {@link RequestRouter} que recebeu o lote como se tivesse chegado sozinho,
+ * na ordem, e a resposta traz "respostas" na mesma ordem. Um item sem "token"
+ * usa o token do lote. O {@link AdmissionControl} cobra o lote uma vez, uma
+ * ficha por item, e os itens não são admitidos de novo: um 429 no meio não
+ * pode desfazer um lote atômico.
+ *
+ * Com "atomico": true todos os itens rodam numa única transação do
+ * {@link DatabaseService}; o primeiro item que não responder 2xx desfaz tudo,
+ * os seguintes não são executados e o lote responde com o status dele.
+ */
+public class BatchController {
+
+    public static final int MAX_REQUESTS = 100;
+
+    private static final BatchController INSTANCE = new BatchController();
+
+    public static BatchController getInstance() {
+        return INSTANCE;
+    }
+
+    private final DatabaseService db;
+
+    private BatchController() {
+        this.db = DatabaseService.getInstance();
+    }
+
+    public JSONObject executeBatch(RequestRouter router, String token, JSONObject request, ClientSession session) {
+        JSONArray requisicoes = request.getJSONArray("requisicoes");
+        boolean atomico = request.optBoolean("atomico", false);
+
+        if (requisicoes.isEmpty() || requisicoes.length() > MAX_REQUESTS) {
+            return createErrorResponse(405, "Erro: Campos inválidos, verifique o tipo e quantidade de caracteres");
+        }
+
+        if (!atomico) {
+            JSONArray respostas = new JSONArray();
+            for (int i = 0; i < requisicoes.length(); i++) {
+                respostas.put(executeItem(router, requisicoes.opt(i), token, session));
+            }
+            return createSuccessResponse(respostas);
+        }
+
+        try {
+            return db.inTransaction(tx -> {
+                JSONArray respostas = new JSONArray();
+                for (int i = 0; i < requisicoes.length(); i++) {
+                    JSONObject resposta = executeItem(router, requisicoes.opt(i), token, session);
+                    respostas.put(resposta);
+
+                    String status = resposta.optString("status", "500");
+                    if (!status.startsWith("2") || tx.isRollbackOnly()) {
+                        tx.setRollbackOnly(); // Desfaz os itens anteriores
+                        return new JSONObject()
+                                .put("status", status.startsWith("2") ? "500" : status)
+                                .put("mensagem", "Erro: Lote cancelado no item " + i + ", nenhuma alteração foi aplicada")
+                                .put("respostas", respostas);
+                    }
+                }
+                return createSuccessResponse(respostas);
+            });
+        } catch (SQLException e) {
+            return createErrorResponse(500, "Erro: Falha interna do servidor");
+        }
+    }
+
+    private JSONObject executeItem(RequestRouter router, Object item, String token, ClientSession session) {
+        if (!(item instanceof JSONObject)) {
+            return createErrorResponse(422, "Erro: Chaves faltantes ou invalidas");
+        }
+        JSONObject subRequest = (JSONObject) item;
+
+        // Operações que mexem na sessão/conexão, aninham lotes ou controlam as
+        // próprias transações ficam de fora
+        Operation operation = Operation.fromName(subRequest.optString("operacao"));
+        if (operation != null && !operation.isAllowedInBatch()) {
+            return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
+        }
+
+        if (!subRequest.has("token") && token != null) {
+            subRequest.put("token", token);
+        }
+        JSONObject response = router.handleBatchItem(ClientRequest.of(subRequest), session);
+
+        // Listagens em streaming são lidas já (dentro da transação, se houver)
+        for (String key : response.keySet()) {
+            Object value = response.opt(key);
+            if (value instanceof JsonRowStream) {
+                try {
+                    response.put(key, ((JsonRowStream) value).toJSONArray());
+                } catch (SQLException e) {
+                    return createErrorResponse(500, "Erro: Falha interna do servidor");
+                }
+            }
+        }
+        return response;
+    }
+
+    private JSONObject createSuccessResponse(JSONArray respostas) {
+        return new JSONObject()
+                .put("status", "200")
+                .put("mensagem", "Sucesso: operação realizada com sucesso")
+                .put("respostas", respostas);
+    }
+
+    private JSONObject createErrorResponse(int status, String message) {
+        return new JSONObject().put("status", String.valueOf(status)).put("mensagem", message);
+    }
+}
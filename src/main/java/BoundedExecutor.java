@@ -0,0 +1,87 @@
+import org.json.JSONObject;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de threads de plataforma com tamanho fixo e fila limitada, criado pelo
+ * {@link ServerExecutors}. Com tudo ocupado a tarefa é recusada com
+ * {@link RejectedExecutionException} (nada de fila sem fim nem de uma thread
+ * nova por pico) e quem submeteu decide a resposta.
+ *
+ * Fila de capacidade 0 é uma SynchronousQueue: cada tarefa precisa de uma
+ * thread livre (usado para as threads de leitura do motor bloqueante).
+ * Threads ociosas por 60s são encerradas e recriadas sob demanda.
+ */
+public class BoundedExecutor extends ThreadPoolExecutor {
+
+    private final int queueCapacity;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxActive = new LongAccumulator(Math::max, 0);
+
+    public BoundedExecutor(String name, int threads, int queueCapacity) {
+        super(Math.max(1, threads), Math.max(1, threads), 60, TimeUnit.SECONDS, newQueue(queueCapacity),
+                threadFactory(name), (task, executor) -> {
+                    throw new RejectedExecutionException(name + ": " + executor.getActiveCount()
+                            + " threads ocupadas e fila cheia");
+                });
+        this.queueCapacity = Math.max(0, queueCapacity);
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        try {
+            super.execute(command);
+        } catch (RejectedExecutionException e) {
+            if (!isShutdown()) rejected.increment();
+            throw e;
+        }
+        maxQueueDepth.accumulate(getQueue().size());
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        maxActive.accumulate(getActiveCount());
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public JSONObject getStats() {
+        return new JSONObject()
+                .put("threads", getMaximumPoolSize())
+                .put("threads_vivas", getPoolSize())
+                .put("ativas", getActiveCount())
+                .put("ativas_max", maxActive.get())
+                .put("fila_atual", getQueue().size())
+                .put("fila_max", maxQueueDepth.get())
+                .put("fila_capacidade", queueCapacity)
+                .put("concluidas", getCompletedTaskCount())
+                .put("recusadas", rejected.sum());
+    }
+
+    private static BlockingQueue<Runnable> newQueue(int capacity) {
+        return capacity > 0 ? new ArrayBlockingQueue<>(capacity) : new SynchronousQueue<>();
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
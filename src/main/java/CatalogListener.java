@@ -0,0 +1,21 @@
+/**
+ * Recebe as mudanças no catálogo de filmes feitas pelo {@link DatabaseService}.
+ * Os eventos são disparados depois do commit da escrita.
+ */
+public interface CatalogListener {
+
+    // Filme criado, editado ou com nota_media/qtd_avaliacoes alterados
+    void movieChanged(int idFilme);
+
+    // Só nota_media/qtd_avaliacoes mudaram (escrita de review); por padrão é um movieChanged
+    default void ratingChanged(int idFilme) {
+        movieChanged(idFilme);
+    }
+
+    void movieRemoved(int idFilme);
+
+    // Vários filmes de uma vez (IMPORTAR_FILMES); por padrão um movieChanged por filme
+    default void moviesChanged(int[] idsFilmes) {
+        for (int idFilme : idsFilmes) movieChanged(idFilme);
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * Conexão de cliente ativa no servidor, independente do motor de I/O
+ * (bloqueante com {@link ClientHandler} ou NIO com {@link NioServerEngine}).
+ */
+public interface ClientConnection {
+
+    // Derruba a conexão (usado pelo ADMIN ao excluir um usuário online)
+    void forceClose();
+}
@@ -1,30 +1,33 @@
 import org.json.JSONObject;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
 
-public class ClientHandler implements Runnable {
+public class ClientHandler implements Runnable, ClientConnection, RequestPipeline.Transport {
 
     private final Socket clientSocket;
-    private final RequestRouter requestRouter;
-    private final ServerGui gui;
+    private final VoteFlixServer server;
     private final String clientId;
+    private final RequestPipeline pipeline;
+    private PrintWriter out;
 
-    // NOVO: Guarda o ID do usuário logado neste socket
-    private Integer loggedUserId = null;
+    // NOVO: Guarda o ID do usuário logado neste socket (escrito pelo worker do LOGIN)
+    private volatile Integer loggedUserId = null;
 
-    public ClientHandler(Socket socket, ServerGui gui) {
+    public ClientHandler(Socket socket, VoteFlixServer server, Executor workers) {
         this.clientSocket = socket;
-        this.gui = gui;
+        this.server = server;
         this.clientId = clientSocket.getInetAddress().getHostAddress() + ":" + clientSocket.getPort();
-        // Passa a GUI para o Router (que passará para o Controller)
-        this.requestRouter = new RequestRouter(gui);
+        this.pipeline = new RequestPipeline(clientId, server.getRouter(),
+                new ClientSession(clientSocket.getInetAddress().getHostAddress()), workers, this,
+                server.getConfig().getPipelineLimit());
     }
 
     // NOVO: Método chamado pela GUI para derrubar conexão
+    @Override
     public void forceClose() {
         try {
             if (!clientSocket.isClosed()) {
@@ -38,84 +41,86 @@ public class ClientHandler implements Runnable {
     @Override
     public void run() {
         try {
-            gui.addActiveClient(this.clientId);
+            server.addActiveClient(this.clientId);
 
             try (PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true, StandardCharsets.UTF_8);
-                 BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream(), StandardCharsets.UTF_8))
+                 InputStream input = clientSocket.getInputStream()
             ) {
+                this.out = out;
+                LineReader in = new LineReader(input);
                 String jsonRequest;
 
-                while ((jsonRequest = in.readLine()) != null) {
-                    System.out.println("[" + clientId + " -> SVR] " + jsonRequest);
-
-                    JSONObject jsonResponse = requestRouter.handleRequest(jsonRequest);
-
-                    String responseString = jsonResponse.toString();
-                    System.out.println("[SVR -> " + clientId + "] " + responseString);
-                    out.println(responseString);
-
-                    // --- NOVO: Lógica de Registro de Sessão ---
-                    if (loggedUserId == null && isLoginSuccess(jsonRequest, jsonResponse)) {
-                        try {
-                            String token = jsonResponse.getString("token");
-                            // Usa JwtService apenas para extrair o ID
-                            int id = new JwtService().validateAndGetClaims(token).get("id", Integer.class);
-                            this.loggedUserId = id;
-                            gui.registerUser(id, this); // Registra na GUI
-                        } catch (Exception e) {
-                            System.err.println("Erro ao registrar sessão: " + e.getMessage());
-                        }
-                    }
-
-                    if (isSuccessfulCloseRequest(jsonRequest, jsonResponse)) {
-                        System.out.println("Cliente " + clientId + " saiu voluntariamente.");
-                        break;
+                // Esta thread só lê; as requisições rodam nos workers do RequestPipeline
+                try {
+                    while ((jsonRequest = in.readLine()) != null) {
+                        pipeline.offer(jsonRequest);
+                        pipeline.awaitRoom();
                     }
+                } catch (LineReader.LineTooLongException e) {
+                    pipeline.offerOversized(); // Para de ler: o 413 sai depois das anteriores e a conexão fecha
                 }
+                pipeline.awaitIdle(); // Cliente fechou a escrita: responde o que já chegou
             }
         } catch (IOException e) {
             if (!clientSocket.isClosed()) {
-                System.err.println("Erro de I/O (ou Kick) com " + clientId + ": " + e.getMessage());
+                ServerLog.error("Erro de I/O (ou Kick) com " + clientId + ": " + e.getMessage());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Servidor parando
         } finally {
+            pipeline.close();
+
             // NOVO: Remove do mapa de usuários online
             if (loggedUserId != null) {
-                gui.unregisterUser(loggedUserId);
+                server.unregisterUser(loggedUserId);
             }
 
-            gui.removeActiveClient(this.clientId);
+            server.removeActiveClient(this.clientId);
+            server.connectionClosed();
 
             try {
                 if (clientSocket != null && !clientSocket.isClosed()) {
                     clientSocket.close();
                 }
             } catch (IOException e) {
-                System.err.println("Erro ao fechar socket: " + e.getMessage());
+                ServerLog.error("Erro ao fechar socket: " + e.getMessage());
             }
-            System.out.println("Conexão com " + clientId + " encerrada.");
+            ServerLog.info("Conexão com " + clientId + " encerrada.");
         }
     }
 
-    private boolean isLoginSuccess(String jsonRequest, JSONObject jsonResponse) {
-        try {
-            JSONObject req = new JSONObject(jsonRequest);
-            String op = req.optString("operacao");
-            String status = jsonResponse.optString("status");
-            return "LOGIN".equals(op) && "200".equals(status);
-        } catch (Exception e) { return false; }
-    }
+    // --- RequestPipeline.Transport (chamados pelos workers, um por vez) ---
 
-    private boolean isSuccessfulCloseRequest(String jsonRequest, JSONObject jsonResponse) {
-        try {
-            String status = jsonResponse.optString("status", "500");
-            if (!status.startsWith("2")) return false;
+    @Override
+    public void write(String response) throws IOException {
+        out.println(response);
+        if (out.checkError()) throw new IOException("falha ao enviar resposta");
+    }
 
-            JSONObject req = new JSONObject(jsonRequest);
-            String operacao = req.optString("operacao");
-            return operacao.equals("LOGOUT") || operacao.equals("EXCLUIR_PROPRIO_USUARIO");
+    @Override
+    public void stream(JSONObject response) throws IOException {
+        // Listagens grandes vão do ResultSet direto para o buffer do socket
+        ResponseWriter.write(response, out);
+        out.println();
+        if (out.checkError()) throw new IOException("falha ao enviar resposta");
+    }
 
-        } catch (Exception e) {
-            return false;
+    @Override
+    public void loggedIn(UserPrincipal principal) {
+        // --- NOVO: Lógica de Registro de Sessão ---
+        if (loggedUserId == null) {
+            this.loggedUserId = principal.getId();
+            server.registerUser(loggedUserId, this); // Registra a sessão
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void closeAfterResponse() {
+        forceClose(); // println já deu flush; o reader sai do readLine
+    }
+
+    @Override
+    public void abort() {
+        forceClose();
+    }
+}
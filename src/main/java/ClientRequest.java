@@ -0,0 +1,105 @@
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Uma requisição recebida, convertida uma única vez: o {@link RequestPipeline}
+ * cria o envelope ao ler a linha e o mesmo objeto segue até o
+ * {@link RequestRouter} e os controllers. A operação já vem resolvida para
+ * {@link Operation}; o JSON original continua disponível para os campos
+ * específicos de cada operação.
+ */
+public final class ClientRequest {
+
+    /**
+     * Maior linha aceita (bytes UTF-8, sem o '\n'), igual nos dois motores.
+     * Cabe um IMPORTAR_FILMES com {@link MovieImportController#MAX_MOVIES}
+     * filmes; acima disso a conexão recebe 413 e é encerrada.
+     */
+    public static final int MAX_LINE_BYTES = 16 * 1024 * 1024;
+
+    private final String line;         // null para itens de LOTE
+    private final JSONObject json;     // null se a linha não era JSON válido
+    private final String operacao;     // Como veio ("" se faltou), para logs e métricas
+    private final Operation operation; // null se desconhecida
+    private final String token;
+    private final Object tag;          // "id_requisicao", ou null
+    private final boolean oversized;
+
+    private ClientRequest(String line, JSONObject json) {
+        this(line, json, false);
+    }
+
+    private ClientRequest(String line, JSONObject json, boolean oversized) {
+        this.line = line;
+        this.oversized = oversized;
+        this.json = json;
+        if (json == null) {
+            operacao = "";
+            operation = null;
+            token = null;
+            tag = null;
+        } else {
+            operacao = json.optString("operacao");
+            operation = Operation.fromName(operacao);
+            token = json.optString("token", null);
+            Object value = json.opt(RequestPipeline.TAG_KEY);
+            tag = value == JSONObject.NULL ? null : value;
+        }
+    }
+
+    /** Converte uma linha recebida; JSON inválido vira um envelope sem {@link #getJson()}. */
+    public static ClientRequest parse(String line) {
+        try {
+            return new ClientRequest(line, new JSONObject(line));
+        } catch (JSONException e) {
+            return new ClientRequest(line, null);
+        }
+    }
+
+    /** Envelope de uma requisição já convertida (itens de LOTE). */
+    public static ClientRequest of(JSONObject json) {
+        return new ClientRequest(null, json);
+    }
+
+    /** Linha acima de {@link #MAX_LINE_BYTES}: descartada sem ser lida até o fim. */
+    public static ClientRequest oversized() {
+        return new ClientRequest("(requisição acima de " + MAX_LINE_BYTES + " bytes)", null, true);
+    }
+
+    public boolean isOversized() {
+        return oversized;
+    }
+
+    public boolean isValidJson() {
+        return json != null;
+    }
+
+    public String getLine() {
+        return line != null ? line : json.toString();
+    }
+
+    public JSONObject getJson() {
+        return json;
+    }
+
+    public String getOperacao() {
+        return operacao;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Object getTag() {
+        return tag;
+    }
+
+    /** Nome usado nas métricas: o da operação, ou INVALIDA sem "operacao" legível. */
+    public String getMetricName() {
+        return operacao.isEmpty() ? MetricsRegistry.INVALID_OPERATION : operacao;
+    }
+}
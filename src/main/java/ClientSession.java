@@ -0,0 +1,85 @@
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Sessão de uma conexão. Depois de um LOGIN bem-sucedido o token emitido fica
+ * associado ao socket junto com o {@link UserPrincipal} já verificado; as
+ * requisições seguintes com o mesmo token não passam de novo pelo JWT.
+ *
+ * Um token diferente do associado (ou o associado depois do "exp") é
+ * verificado normalmente pelo {@link JwtService}. Depois do LOGOUT o token
+ * deixa de valer nesta conexão.
+ *
+ * Cada conexão tem a sua sessão; os métodos são sincronizados porque as
+ * requisições de um mesmo socket podem rodar em workers diferentes.
+ */
+public class ClientSession {
+
+    private final JwtService jwt = JwtService.getInstance();
+    private final String remoteAddress;
+
+    private String boundToken;
+    private UserPrincipal principal;
+    private long expiresAt;
+    private String revokedToken;
+
+    // Sem endereço (ex.: requisição avulsa): o limite por endereço não se aplica
+    public ClientSession() {
+        this(null);
+    }
+
+    public ClientSession(String remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    /** Endereço IP do cliente, usado pelo {@link AdmissionControl}. */
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Resolve o usuário de uma requisição.
+     * Lança JwtException se o token for inválido, expirado ou já encerrado por LOGOUT.
+     */
+    public synchronized UserPrincipal authenticate(String token) {
+        if (token == null) {
+            throw new JwtException("Token não fornecido");
+        }
+        if (token.equals(revokedToken)) {
+            throw new JwtException("Token encerrado por LOGOUT nesta conexão");
+        }
+        if (token.equals(boundToken)) {
+            if (System.currentTimeMillis() < expiresAt) {
+                return principal;
+            }
+            unbind(); // Expirou: o JwtService abaixo lança a exceção de token expirado
+        }
+        return UserPrincipal.fromClaims(jwt.validateAndGetClaims(token));
+    }
+
+    /** Associa à conexão o token devolvido por um LOGIN bem-sucedido. */
+    public synchronized void bind(String token) {
+        Claims claims = jwt.validateAndGetClaims(token);
+        this.boundToken = token;
+        this.principal = UserPrincipal.fromClaims(claims);
+        this.expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : 0;
+        this.revokedToken = null;
+    }
+
+    /** LOGOUT: desfaz a associação e recusa o token nesta conexão daqui em diante. */
+    public synchronized void logout(String token) {
+        revokedToken = token;
+        if (token.equals(boundToken)) unbind();
+    }
+
+    /** Usuário associado à conexão, ou null se não houver login ativo. */
+    public synchronized UserPrincipal getPrincipal() {
+        return principal;
+    }
+
+    private void unbind() {
+        boundToken = null;
+        principal = null;
+        expiresAt = 0;
+    }
+}
@@ -0,0 +1,272 @@
+import org.json.JSONObject;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de conexões JDBC com tamanho máximo e timeout de checkout.
+ *
+ * As conexões entregues são proxies: close() devolve a conexão física ao pool
+ * em vez de fechá-la, então o código do DatabaseService continua usando
+ * try-with-resources normalmente. Cada conexão ociosa é validada antes de
+ * ser reutilizada, e cada conexão física tem seu próprio {@link StatementCache}.
+ */
+public class ConnectionPool {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long checkoutTimeoutMs;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PhysicalConnection> idle = new LinkedBlockingDeque<>();
+    private volatile boolean closed = false;
+
+    // Métricas
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile double recentWaitMs = 0.0; // Média móvel exponencial das últimas esperas
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+
+    public ConnectionPool(String url, String user, String password, int maxSize, long checkoutTimeoutMs, int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.checkoutTimeoutMs = checkoutTimeoutMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Retira uma conexão do pool, esperando no máximo checkoutTimeoutMs.
+     * Lança SQLTimeoutException se nenhuma conexão ficar livre a tempo.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Pool de conexões fechado");
+
+        long start = System.nanoTime();
+        boolean acquired;
+        waiting.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(checkoutTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão do pool", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        recordWait(System.nanoTime() - start);
+
+        if (!acquired) {
+            timeouts.increment();
+            throw new SQLTimeoutException("Timeout de " + checkoutTimeoutMs + "ms aguardando conexão do pool");
+        }
+
+        try {
+            PhysicalConnection physical = pollValidIdle();
+            if (physical == null) {
+                physical = new PhysicalConnection(DriverManager.getConnection(url, user, password));
+                created.increment();
+            }
+            active.incrementAndGet();
+            checkouts.increment();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PhysicalConnection pollValidIdle() {
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            try {
+                if (physical.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) return physical;
+            } catch (SQLException ignored) {
+            }
+            discard(physical);
+        }
+        return null;
+    }
+
+    private void release(PhysicalConnection physical) {
+        active.decrementAndGet();
+        try {
+            Connection conn = physical.connection;
+            if (closed || conn.isClosed()) {
+                discard(physical);
+                return;
+            }
+            // Não deixa transação pendente vazar para o próximo usuário da conexão
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            idle.offerFirst(physical); // LIFO: reaproveita as conexões mais "quentes"
+        } catch (SQLException e) {
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PhysicalConnection physical) {
+        discarded.increment();
+        physical.statements.closeAll();
+        try {
+            physical.connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * Fecha as conexões ociosas e impede novos checkouts. Conexões em uso são
+     * fechadas quando devolvidas.
+     */
+    public void close() {
+        closed = true;
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            discard(physical);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.add(nanos);
+        // Atualização sem lock: uma amostra perdida em corrida não muda a tendência
+        recentWaitMs = recentWaitMs * 0.9 + (nanos / 1_000_000.0) * 0.1;
+        long max;
+        while (nanos > (max = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(max, nanos)) break;
+        }
+    }
+
+    // --- Métricas ---
+
+    public int getActiveCount() { return active.get(); }
+    public int getIdleCount() { return idle.size(); }
+    public int getWaitingCount() { return waiting.get(); }
+    public int getMaxSize() { return maxSize; }
+    public double getRecentWaitMs() { return recentWaitMs; }
+
+    public JSONObject getStats() {
+        long count = checkouts.sum() + timeouts.sum();
+        double avgWaitMs = count == 0 ? 0.0 : totalWaitNanos.sum() / (double) count / 1_000_000.0;
+        return new JSONObject()
+                .put("tamanho_max", maxSize)
+                .put("ativas", getActiveCount())
+                .put("ociosas", getIdleCount())
+                .put("aguardando", getWaitingCount())
+                .put("checkouts", checkouts.sum())
+                .put("timeouts", timeouts.sum())
+                .put("criadas", created.sum())
+                .put("descartadas", discarded.sum())
+                .put("espera_media_ms", avgWaitMs)
+                .put("espera_max_ms", maxWaitNanos.get() / 1_000_000.0)
+                .put("espera_recente_ms", recentWaitMs)
+                .put("statements", getStatementCacheStats());
+    }
+
+    public JSONObject getStatementCacheStats() {
+        long hitCount = statementHits.sum();
+        long lookups = hitCount + statementMisses.sum();
+        return new JSONObject()
+                .put("tamanho_max_por_conexao", statementCacheSize)
+                .put("hits", hitCount)
+                .put("misses", statementMisses.sum())
+                .put("evictions", statementEvictions.sum())
+                .put("hit_rate", lookups == 0 ? 0.0 : hitCount / (double) lookups);
+    }
+
+    private Connection wrap(PhysicalConnection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new PooledConnectionHandler(physical));
+    }
+
+    // Conexão física e o cache de statements que vive junto com ela
+    private final class PhysicalConnection {
+
+        private final Connection connection;
+        private final StatementCache statements;
+
+        PhysicalConnection(Connection connection) {
+            this.connection = connection;
+            this.statements = new StatementCache(connection, statementCacheSize, statementHits, statementMisses, statementEvictions);
+        }
+    }
+
+    /**
+     * Intercepta close()/isClosed() e prepareStatement(sql) da conexão
+     * emprestada; o resto é repassado para a conexão física.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+
+        private final PhysicalConnection physical;
+        private boolean returned = false;
+
+        PooledConnectionHandler(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical.connection + "]";
+                default:
+                    if (returned) throw new SQLException("Conexão já devolvida ao pool");
+                    if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+                        return physical.statements.prepare((String) args[0]);
+                    }
+                    try {
+                        return method.invoke(physical.connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import org.json.JSONObject;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool próprio para o hash de senhas (LOGIN, CRIAR_USUARIO e troca de senha).
+ *
+ * Tem tantas threads quanto CPUs (--credential-threads) e uma fila limitada
+ * (--credential-queue). Com a fila cheia a tarefa é recusada na hora com
+ * {@link RejectedExecutionException}, que os controllers respondem com 503:
+ * uma rajada de logins não ocupa as threads do resto do tráfego nem se acumula
+ * sem limite.
+ *
+ * Quem chama espera o resultado; o ganho é limitar quantos hashes rodam ao
+ * mesmo tempo e quantos podem esperar.
+ */
+public class CredentialExecutor {
+
+    private static final CredentialExecutor INSTANCE = new CredentialExecutor();
+
+    public static CredentialExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    private volatile ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    private CredentialExecutor() {
+    }
+
+    // Chamado no start do servidor; troca o pool anterior, se houver
+    public void configure(ServerConfig config) {
+        ThreadPoolExecutor old = executor;
+        executor = newExecutor(config.getCredentialThreads(), config.getCredentialQueue());
+        if (old != null) old.shutdown();
+    }
+
+    public void shutdown() {
+        ThreadPoolExecutor current = executor;
+        executor = null;
+        if (current != null) current.shutdown();
+    }
+
+    public String hashPassword(String password) {
+        return call(() -> PasswordService.hashPassword(password));
+    }
+
+    public boolean checkPassword(String plainPassword, String hashedPassword) {
+        return call(() -> PasswordService.checkPassword(plainPassword, hashedPassword));
+    }
+
+    private <T> T call(Callable<T> task) {
+        ThreadPoolExecutor current = executor;
+        if (current == null) {
+            // Fora do servidor (ex.: GUI antes do start): roda na própria thread
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        long enqueued = System.nanoTime();
+        Future<T> future;
+        try {
+            future = current.submit(() -> {
+                long started = System.nanoTime();
+                long waited = started - enqueued;
+                waitNanos.add(waited);
+                maxWaitNanos.accumulate(waited);
+                try {
+                    return task.call();
+                } finally {
+                    runNanos.add(System.nanoTime() - started);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+        maxQueueDepth.accumulate(current.getQueue().size());
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrompido esperando o hash de senha");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public JSONObject getStats() {
+        ThreadPoolExecutor current = executor;
+        long done = Math.max(1, completed.sum());
+        return new JSONObject()
+                .put("threads", current != null ? current.getMaximumPoolSize() : 0)
+                .put("fila_atual", current != null ? current.getQueue().size() : 0)
+                .put("fila_max", maxQueueDepth.get())
+                .put("submetidas", submitted.sum())
+                .put("recusadas", rejected.sum())
+                .put("concluidas", completed.sum())
+                .put("espera_media_us", waitNanos.sum() / done / 1000)
+                .put("espera_max_us", maxWaitNanos.get() / 1000)
+                .put("execucao_media_us", runNanos.sum() / done / 1000);
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads, int queue) {
+        int size = Math.max(1, threads);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queue)),
+                r -> {
+                    Thread t = new Thread(r, "credenciais-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -1,31 +1,199 @@
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import org.h2.jdbc.JdbcSQLIntegrityConstraintViolationException;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 public class DatabaseService {
 
-    private static final String DB_URL = "jdbc:h2:./vote_flix_db;AUTO_SERVER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String DB_URL_OPTIONS = ";AUTO_SERVER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String MEM_URL_OPTIONS = ";DB_CLOSE_DELAY=-1"; // H2 não aceita AUTO_SERVER em memória
     private static final String DB_USER = "sa";
     private static final String DB_PASSWORD = "";
 
-    private static DatabaseService instance;
+    // Inicialização estática: sem synchronized, que prenderia virtual threads à carrier
+    private static final DatabaseService INSTANCE = new DatabaseService();
 
-    public static synchronized DatabaseService getInstance() {
-        if (instance == null) {
-            instance = new DatabaseService();
-        }
-        return instance;
+    public static DatabaseService getInstance() {
+        return INSTANCE;
+    }
+
+    // Caminho do banco e parâmetros do pool; definidos por configure() antes do start
+    private volatile ServerConfig config = new ServerConfig();
+
+    private final AtomicReference<ConnectionPool> pool = new AtomicReference<>();
+    // Estatísticas do último pool fechado, para quem pergunta depois do shutdown()
+    private volatile JSONObject lastPoolStats = new JSONObject();
+    private final List<CatalogListener> catalogListeners = new CopyOnWriteArrayList<>();
+
+    public void configure(ServerConfig config) {
+        this.config = config;
     }
 
+    // Transação aberta por inTransaction() na thread atual, se houver
+    private final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+
     private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        Transaction tx = currentTransaction.get();
+        if (tx != null) return tx.view;
+        return pool().getConnection();
+    }
+
+    // Cria o pool sob demanda (também depois de um shutdown(), no próximo start)
+    private ConnectionPool pool() {
+        while (true) {
+            ConnectionPool current = pool.get();
+            if (current != null && !current.isClosed()) return current;
+
+            ServerConfig cfg = config;
+            String options = cfg.getDbPath().startsWith("mem:") ? MEM_URL_OPTIONS : DB_URL_OPTIONS;
+            ConnectionPool fresh = new ConnectionPool("jdbc:h2:" + cfg.getDbPath() + options, DB_USER, DB_PASSWORD,
+                    cfg.getDbPoolSize(), cfg.getDbPoolTimeoutMs(), cfg.getStatementCacheSize());
+            if (pool.compareAndSet(current, fresh)) return fresh;
+        }
+    }
+
+    // --- OBSERVADORES DO CATÁLOGO ---
+
+    public void addCatalogListener(CatalogListener listener) {
+        catalogListeners.add(listener);
+    }
+
+    private void fireMovieChanged(int idFilme) {
+        runAfterCommit(() -> {
+            for (CatalogListener listener : catalogListeners) listener.movieChanged(idFilme);
+        });
+    }
+
+    private void fireRatingChanged(int idFilme) {
+        runAfterCommit(() -> {
+            for (CatalogListener listener : catalogListeners) listener.ratingChanged(idFilme);
+        });
+    }
+
+    private void fireMoviesChanged(int[] idsFilmes) {
+        runAfterCommit(() -> {
+            for (CatalogListener listener : catalogListeners) listener.moviesChanged(idsFilmes);
+        });
+    }
+
+    private void fireMovieRemoved(int idFilme) {
+        runAfterCommit(() -> {
+            for (CatalogListener listener : catalogListeners) listener.movieRemoved(idFilme);
+        });
+    }
+
+    // --- TRANSAÇÃO COMPARTILHADA (LOTE atômico) ---
+
+    @FunctionalInterface
+    public interface TransactionWork<T> {
+        T run(Transaction tx) throws SQLException;
+    }
+
+    /**
+     * Executa {@code work} com todos os métodos deste serviço, na thread atual,
+     * usando uma única conexão e uma única transação. Os commits, rollbacks e
+     * closes que cada método faz viram no-ops; um rollback pedido por algum
+     * deles marca a transação para ser desfeita no final.
+     *
+     * Se {@code work} terminar sem exceção e sem {@link Transaction#setRollbackOnly()},
+     * faz commit e só então dispara os eventos do catálogo e as ações de
+     * {@link #runAfterCommit}; caso contrário desfaz tudo e os descarta.
+     */
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        if (currentTransaction.get() != null) {
+            throw new IllegalStateException("Já existe uma transação aberta nesta thread");
+        }
+
+        Connection conn = pool().getConnection();
+        Transaction tx = new Transaction(conn);
+        T result;
+        boolean committed = false;
+        try {
+            conn.setAutoCommit(false);
+            currentTransaction.set(tx);
+            result = work.run(tx);
+            if (tx.rollbackOnly) {
+                conn.rollback();
+            } else {
+                conn.commit();
+                committed = true;
+            }
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            currentTransaction.remove();
+            try {
+                conn.setAutoCommit(true);
+            } finally {
+                conn.close();
+            }
+        }
+
+        if (committed) {
+            for (Runnable action : tx.afterCommit) action.run();
+        }
+        return result;
+    }
+
+    public boolean isInTransaction() {
+        return currentTransaction.get() != null;
+    }
+
+    /** Roda a ação agora, ou depois do commit se houver transação aberta (descartada no rollback). */
+    public void runAfterCommit(Runnable action) {
+        Transaction tx = currentTransaction.get();
+        if (tx != null) {
+            tx.afterCommit.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    // Leituras de métricas não criam o pool: sem pool, devolvem os últimos números conhecidos
+    public JSONObject getPoolStats() {
+        ConnectionPool current = pool.get();
+        return current != null ? current.getStats() : new JSONObject(lastPoolStats.toString());
+    }
+
+    // Sinais de sobrecarga do banco para o AdmissionControl
+    public int getPoolWaitingCount() {
+        ConnectionPool current = pool.get();
+        return current != null ? current.getWaitingCount() : 0;
+    }
+
+    public double getRecentPoolWaitMs() {
+        ConnectionPool current = pool.get();
+        return current != null ? current.getRecentWaitMs() : 0.0;
+    }
+
+    // Fecha as conexões do pool (chamado ao parar o servidor)
+    public void shutdown() {
+        ConnectionPool current = pool.getAndSet(null);
+        if (current != null) {
+            lastPoolStats = current.getStats();
+            current.close();
+        }
     }
 
     public void initializeDatabase() throws SQLException {
@@ -41,10 +209,10 @@ public class DatabaseService {
                 "titulo VARCHAR(30) NOT NULL," +
                 "diretor VARCHAR(30) NOT NULL," +
                 "ano VARCHAR(4) NOT NULL," +
-                "generos VARCHAR(255) NOT NULL," +
                 "sinopse VARCHAR(250)," +
                 "nota_media DECIMAL(3, 1) DEFAULT 0.0," +
                 "qtd_avaliacoes INT DEFAULT 0," +
+                "soma_notas BIGINT DEFAULT 0," +
                 "CONSTRAINT uc_filme UNIQUE(titulo, diretor, ano)" +
                 ");";
 
@@ -63,19 +231,99 @@ public class DatabaseService {
                 "CONSTRAINT uc_review UNIQUE(id_filme, id_usuario)" +
                 ");";
 
+        // Gêneros normalizados; "ordem" preserva a ordem em que foram informados
+        String sqlCreateTableGeneros = "CREATE TABLE IF NOT EXISTS generos (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY," +
+                "nome VARCHAR(255) NOT NULL," +
+                "CONSTRAINT uc_genero UNIQUE(nome)" +
+                ");";
+
+        String sqlCreateTableFilmeGeneros = "CREATE TABLE IF NOT EXISTS filme_generos (" +
+                "id_filme INT NOT NULL," +
+                "id_genero INT NOT NULL," +
+                "ordem INT NOT NULL," +
+                "PRIMARY KEY (id_filme, id_genero)," +
+                "FOREIGN KEY (id_filme) REFERENCES filmes(id) ON DELETE CASCADE," +
+                "FOREIGN KEY (id_genero) REFERENCES generos(id)" +
+                ");";
+
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
             stmt.execute(sqlCreateTableUsers);
             stmt.execute(sqlCreateTableFilmes);
             stmt.execute(sqlCreateTableReviews);
+            stmt.execute(sqlCreateTableGeneros);
+            stmt.execute(sqlCreateTableFilmeGeneros);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_filme_generos_genero ON filme_generos(id_genero, id_filme)");
+            migrateGenreColumn(conn);
 
             try {
                 stmt.execute("ALTER TABLE reviews ADD COLUMN IF NOT EXISTS editado BOOLEAN DEFAULT FALSE");
             } catch (SQLException e) {
-                System.out.println("Nota: Verificação de coluna 'editado' concluída.");
+                ServerLog.info("Nota: Verificação de coluna 'editado' concluída.");
             }
+            // Soma das notas mantida incrementalmente (bancos antigos são preenchidos pelo reparo abaixo)
+            stmt.execute("ALTER TABLE filmes ADD COLUMN IF NOT EXISTS soma_notas BIGINT DEFAULT 0");
+
+            // Índices para a paginação por keyset
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_filmes_titulo_id ON filmes(titulo, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_reviews_filme_id ON reviews(id_filme, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_reviews_usuario_id ON reviews(id_usuario, id)");
         }
         createAdminUser();
+
+        int repaired = verifyMovieRatings(true);
+        if (repaired > 0) {
+            ServerLog.info("Nota: Agregados de avaliação corrigidos em " + repaired + " filme(s).");
+        }
+    }
+
+    /**
+     * Bancos antigos guardavam os gêneros em filmes.generos, separados por
+     * vírgula. Copia para filme_generos e remove a coluna. Se for interrompida,
+     * a cópia é refeita por inteiro na próxima partida (MERGE).
+     */
+    private void migrateGenreColumn(Connection conn) throws SQLException {
+        String sqlHasColumn = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'FILMES' AND COLUMN_NAME = 'GENEROS'";
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sqlHasColumn)) {
+            rs.next();
+            if (rs.getInt(1) == 0) return;
+        }
+
+        int migrated = 0;
+        conn.setAutoCommit(false);
+        try {
+            Map<String, Integer> genreIds = new HashMap<>();
+            String sqlMerge = "MERGE INTO filme_generos (id_filme, id_genero, ordem) KEY(id_filme, id_genero) VALUES (?, ?, ?)";
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT id, generos FROM filmes");
+                 PreparedStatement merge = conn.prepareStatement(sqlMerge)) {
+                while (rs.next()) {
+                    List<String> generos = new ArrayList<>();
+                    String joined = rs.getString("generos");
+                    if (joined != null) {
+                        for (String nome : joined.split(",")) {
+                            if (!nome.isEmpty()) generos.add(nome);
+                        }
+                    }
+                    addGenreBatch(conn, merge, rs.getInt("id"), generos, genreIds);
+                    migrated++;
+                }
+                merge.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE filmes DROP COLUMN generos");
+        }
+        ServerLog.info("Nota: Gêneros de " + migrated + " filme(s) migrados para a tabela filme_generos.");
     }
 
     private void createAdminUser() throws SQLException {
@@ -95,34 +343,134 @@ public class DatabaseService {
 
     // --- MÉTODOS DE FILMES ---
 
-    public void createMovie(String titulo, String diretor, String ano, String generos, String sinopse) throws SQLException {
-        String sql = "INSERT INTO filmes (titulo, diretor, ano, generos, sinopse) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, titulo);
-            pstmt.setString(2, diretor);
-            pstmt.setString(3, ano);
-            pstmt.setString(4, generos);
-            pstmt.setString(5, sinopse);
+    private static final String INSERT_MOVIE_SQL = "INSERT INTO filmes (titulo, diretor, ano, sinopse) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_MOVIE_GENRE_SQL = "INSERT INTO filme_generos (id_filme, id_genero, ordem) VALUES (?, ?, ?)";
+
+    // Colunas de filmes mais os nomes dos gêneros (ARRAY) na ordem cadastrada; usar com "FROM filmes f"
+    private static final String MOVIE_COLUMNS = "f.*, (SELECT ARRAY_AGG(g.nome ORDER BY fg.ordem) " +
+            "FROM filme_generos fg JOIN generos g ON g.id = fg.id_genero WHERE fg.id_filme = f.id) AS generos";
+
+    // Retorna o ID gerado para o filme
+    public int createMovie(String titulo, String diretor, String ano, List<String> generos, String sinopse) throws SQLException {
+        Connection conn = null;
+        int id;
+        try {
+            conn = getConnection();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MOVIE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, titulo);
+                pstmt.setString(2, diretor);
+                pstmt.setString(3, ano);
+                pstmt.setString(4, sinopse);
+                pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    keys.next();
+                    id = keys.getInt(1);
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MOVIE_GENRE_SQL)) {
+                addGenreBatch(conn, pstmt, id, generos, new HashMap<>());
+                pstmt.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) conn.rollback();
+            throw e;
+        } finally {
+            if (conn != null) { conn.setAutoCommit(true); conn.close(); }
+        }
+        fireMovieChanged(id);
+        return id;
+    }
+
+    /**
+     * Adiciona ao batch de {@code pstmt} (id_filme, id_genero, ordem) uma linha por
+     * gênero, ignorando repetidos. {@code genreIds} guarda os ids já resolvidos
+     * nesta transação; gêneros novos são criados na hora.
+     */
+    private void addGenreBatch(Connection conn, PreparedStatement pstmt, int idFilme, List<String> generos,
+                               Map<String, Integer> genreIds) throws SQLException {
+        int ordem = 0;
+        for (String nome : new LinkedHashSet<>(generos)) {
+            Integer idGenero = genreIds.get(nome);
+            if (idGenero == null) {
+                idGenero = findOrCreateGenre(conn, nome);
+                genreIds.put(nome, idGenero);
+            }
+            pstmt.setInt(1, idFilme);
+            pstmt.setInt(2, idGenero);
+            pstmt.setInt(3, ordem++);
+            pstmt.addBatch();
+        }
+    }
+
+    // Sem cache entre transações: um gênero criado numa transação desfeita não existe
+    private int findOrCreateGenre(Connection conn, String nome) throws SQLException {
+        int id = findGenreId(conn, nome);
+        if (id != -1) return id;
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO generos (nome) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, nome);
             pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        } catch (JdbcSQLIntegrityConstraintViolationException e) {
+            // Outra transação criou o mesmo gênero entre o SELECT e o INSERT
+            // (uc_genero); o INSERT esperou o commit dela, então agora ele aparece
+            id = findGenreId(conn, nome);
+            if (id == -1) throw e;
+            return id;
+        }
+    }
+
+    private int findGenreId(Connection conn, String nome) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM generos WHERE nome = ?")) {
+            pstmt.setString(1, nome);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
         }
     }
 
-    private JSONObject resultSetToMovieJson(ResultSet rs) throws SQLException {
+    // Sem estado: static para os benchmarks medirem só a serialização de uma linha
+    static JSONObject resultSetToMovieJson(ResultSet rs) throws SQLException {
         JSONObject filme = new JSONObject();
         filme.put("id", String.valueOf(rs.getInt("id")));
         filme.put("titulo", rs.getString("titulo"));
         filme.put("diretor", rs.getString("diretor"));
         filme.put("ano", rs.getString("ano"));
-        filme.put("genero", new JSONArray(rs.getString("generos").split(",")));
+        Array generos = rs.getArray("generos");
+        // Sem gênero sai [""], como quando a coluna era "" e a resposta fazia split(",")
+        filme.put("genero", generos == null ? new JSONArray().put("") : new JSONArray((Object[]) generos.getArray()));
         filme.put("sinopse", rs.getString("sinopse"));
-        filme.put("nota", String.format("%.1f", rs.getDouble("nota_media")).replace(',', '.'));
+        filme.put("nota", formatRating(rs.getDouble("nota_media")));
         filme.put("qtd_avaliacoes", String.valueOf(rs.getInt("qtd_avaliacoes")));
         return filme;
     }
 
+    private static String formatRating(double notaMedia) {
+        return String.format("%.1f", notaMedia).replace(',', '.');
+    }
+
+    /** Só "nota" e "qtd_avaliacoes" do filme, pela chave (eventos de review); null se não existe. */
+    public JSONObject findMovieRatingAsJson(int id) throws SQLException {
+        String sql = "SELECT nota_media, qtd_avaliacoes FROM filmes WHERE id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return null;
+                return new JSONObject()
+                        .put("nota", formatRating(rs.getDouble("nota_media")))
+                        .put("qtd_avaliacoes", String.valueOf(rs.getInt("qtd_avaliacoes")));
+            }
+        }
+    }
+
     public JSONObject findMovieByIdAsJson(int id) throws SQLException {
-        String sql = "SELECT * FROM filmes WHERE id = ?";
+        String sql = "SELECT " + MOVIE_COLUMNS + " FROM filmes f WHERE id = ?";
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
@@ -135,9 +483,25 @@ public class DatabaseService {
         }
     }
 
+    /** Os filmes com esses ids, numa só consulta; os que não existem ficam de fora. */
+    public List<JSONObject> findMoviesByIdsAsJson(int[] ids) throws SQLException {
+        List<JSONObject> filmes = new ArrayList<>(ids.length);
+        String sql = "SELECT " + MOVIE_COLUMNS + " FROM filmes f WHERE f.id = ANY(?)";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setArray(1, conn.createArrayOf("INTEGER", Arrays.stream(ids).boxed().toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    filmes.add(resultSetToMovieJson(rs));
+                }
+            }
+        }
+        return filmes;
+    }
+
     public List<JSONObject> getAllMoviesAsJson() throws SQLException {
         List<JSONObject> filmes = new ArrayList<>();
-        String sql = "SELECT * FROM filmes ORDER BY titulo";
+        String sql = "SELECT " + MOVIE_COLUMNS + " FROM filmes f ORDER BY titulo";
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
@@ -148,18 +512,239 @@ public class DatabaseService {
         return filmes;
     }
 
-    public void updateMovie(int id, String titulo, String diretor, String ano, String generos, String sinopse) throws SQLException {
-        String sql = "UPDATE filmes SET titulo = ?, diretor = ?, ano = ?, generos = ?, sinopse = ? WHERE id = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, titulo); pstmt.setString(2, diretor); pstmt.setString(3, ano); pstmt.setString(4, generos); pstmt.setString(5, sinopse); pstmt.setInt(6, id);
-            pstmt.executeUpdate();
+    // Mesma ordem de getAllMoviesAsJson, mas entregando uma linha por vez
+    public void streamAllMovies(RowHandler handler) throws SQLException, IOException {
+        try (Connection conn = getConnection()) {
+            streamAllMovies(conn, handler);
+        }
+    }
+
+    /**
+     * Como {@link #streamAllMovies(RowHandler)}, mas sempre numa conexão
+     * própria do pool: só o que já foi confirmado, mesmo chamado de dentro de
+     * {@link #inTransaction} (índices que sobrevivem à transação).
+     */
+    public void streamAllCommittedMovies(RowHandler handler) throws SQLException, IOException {
+        try (Connection conn = pool().getConnection()) {
+            streamAllMovies(conn, handler);
+        }
+    }
+
+    private void streamAllMovies(Connection conn, RowHandler handler) throws SQLException, IOException {
+        String sql = "SELECT " + MOVIE_COLUMNS + " FROM filmes f ORDER BY titulo";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                handler.accept(resultSetToMovieJson(rs));
+            }
+        }
+    }
+
+    public int countMovies() throws SQLException {
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM filmes")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Página de filmes ordenada por (titulo, id), começando depois do cursor.
+     * Busca um item a mais para saber se existe próxima página.
+     */
+    public Page getMoviesPage(int limite, Pagination.MovieCursor after) throws SQLException {
+        String sql = after == null
+                ? "SELECT " + MOVIE_COLUMNS + " FROM filmes f ORDER BY titulo, id LIMIT ?"
+                : "SELECT " + MOVIE_COLUMNS + " FROM filmes f WHERE titulo > ? OR (titulo = ? AND id > ?) ORDER BY titulo, id LIMIT ?";
+        List<JSONObject> filmes = new ArrayList<>();
+        String proximoCursor = null;
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (after != null) {
+                pstmt.setString(i++, after.titulo);
+                pstmt.setString(i++, after.titulo);
+                pstmt.setInt(i++, after.id);
+            }
+            pstmt.setInt(i, limite + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                String ultimoTitulo = null;
+                int ultimoId = 0;
+                while (rs.next()) {
+                    if (filmes.size() == limite) {
+                        proximoCursor = Pagination.encodeMovieCursor(ultimoTitulo, ultimoId);
+                        break;
+                    }
+                    filmes.add(resultSetToMovieJson(rs));
+                    ultimoTitulo = rs.getString("titulo");
+                    ultimoId = rs.getInt("id");
+                }
+            }
         }
+        return new Page(filmes, proximoCursor);
+    }
+
+    public void updateMovie(int id, String titulo, String diretor, String ano, List<String> generos, String sinopse) throws SQLException {
+        String sql = "UPDATE filmes SET titulo = ?, diretor = ?, ano = ?, sinopse = ? WHERE id = ?";
+        Connection conn = null;
+        try {
+            conn = getConnection();
+            conn.setAutoCommit(false);
+
+            int updated;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, titulo); pstmt.setString(2, diretor); pstmt.setString(3, ano); pstmt.setString(4, sinopse); pstmt.setInt(5, id);
+                updated = pstmt.executeUpdate();
+            }
+            if (updated > 0) {
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM filme_generos WHERE id_filme = ?")) {
+                    pstmt.setInt(1, id);
+                    pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MOVIE_GENRE_SQL)) {
+                    addGenreBatch(conn, pstmt, id, generos, new HashMap<>());
+                    pstmt.executeBatch();
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) conn.rollback();
+            throw e;
+        } finally {
+            if (conn != null) { conn.setAutoCommit(true); conn.close(); }
+        }
+        fireMovieChanged(id);
     }
     public void deleteMovie(int id) throws SQLException {
         String sql = "DELETE FROM filmes WHERE id = ?";
         try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id); pstmt.executeUpdate();
         }
+        fireMovieRemoved(id); // As reviews do filme caem junto (ON DELETE CASCADE)
+    }
+
+    // --- IMPORTAÇÃO EM MASSA (IMPORTAR_FILMES) ---
+
+    /**
+     * Insere filmes já validados com executeBatch, uma transação a cada
+     * --import-batch filmes. Antes de cada bloco uma única consulta separa os
+     * filmes que já existem (uc_filme), que não são inseridos.
+     *
+     * Um erro num bloco desfaz só aquele bloco e encerra a importação; os
+     * blocos anteriores continuam gravados. Os observadores recebem um único
+     * evento com todos os filmes gravados, no fim e com a conexão já devolvida.
+     *
+     * @return para cada filme, o id gerado, -1 se já existia ou 0 se não foi processado
+     */
+    public int[] importMovies(List<MovieRow> rows) throws SQLException {
+        if (isInTransaction()) {
+            throw new IllegalStateException("A importação controla as próprias transações");
+        }
+
+        int chunkSize = Math.max(1, config.getImportBatchSize());
+        int[] ids = new int[rows.size()];
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int start = 0; start < rows.size(); start += chunkSize) {
+                    int end = Math.min(rows.size(), start + chunkSize);
+                    try {
+                        try {
+                            insertMovieChunk(conn, rows, start, end, ids);
+                            conn.commit();
+                        } catch (BatchUpdateException e) {
+                            // Outra conexão inseriu um dos filmes depois da conferência:
+                            // refaz o bloco linha a linha para saber qual
+                            conn.rollback();
+                            Arrays.fill(ids, start, end, 0);
+                            insertMoviesOneByOne(conn, rows, start, end, ids);
+                            conn.commit();
+                        }
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        Arrays.fill(ids, start, end, 0);
+                        ServerLog.error("Importação interrompida no filme " + start + ": " + e.getMessage());
+                        break;
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        int[] inserted = Arrays.stream(ids).filter(id -> id > 0).toArray();
+        if (inserted.length > 0) fireMoviesChanged(inserted);
+        return ids;
+    }
+
+    private void insertMovieChunk(Connection conn, List<MovieRow> rows, int start, int end, int[] ids) throws SQLException {
+        // 1. Quais filmes do bloco já estão no banco
+        Set<String> existing = new HashSet<>();
+        String[] titulos = new String[end - start];
+        for (int i = start; i < end; i++) titulos[i - start] = rows.get(i).titulo;
+        String sqlExisting = "SELECT titulo, diretor, ano FROM filmes WHERE titulo = ANY(?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlExisting)) {
+            pstmt.setArray(1, conn.createArrayOf("VARCHAR", titulos));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(MovieRow.key(rs.getString("titulo"), rs.getString("diretor"), rs.getString("ano")));
+                }
+            }
+        }
+
+        // 2. Os demais vão num único executeBatch
+        List<Integer> batched = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MOVIE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = start; i < end; i++) {
+                MovieRow row = rows.get(i);
+                if (existing.contains(row.key())) {
+                    ids[i] = -1;
+                    continue;
+                }
+                row.bind(pstmt);
+                pstmt.addBatch();
+                batched.add(i);
+            }
+            if (batched.isEmpty()) return;
+            pstmt.executeBatch();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                int k = 0;
+                while (keys.next() && k < batched.size()) {
+                    ids[batched.get(k++)] = keys.getInt(1);
+                }
+            }
+        }
+
+        // 3. Gêneros de todos os filmes do bloco, também num executeBatch
+        Map<String, Integer> genreIds = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MOVIE_GENRE_SQL)) {
+            for (int i : batched) {
+                addGenreBatch(conn, pstmt, ids[i], rows.get(i).generos, genreIds);
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private void insertMoviesOneByOne(Connection conn, List<MovieRow> rows, int start, int end, int[] ids) throws SQLException {
+        Map<String, Integer> genreIds = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MOVIE_SQL, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement genres = conn.prepareStatement(INSERT_MOVIE_GENRE_SQL)) {
+            for (int i = start; i < end; i++) {
+                rows.get(i).bind(pstmt);
+                try {
+                    pstmt.executeUpdate();
+                } catch (JdbcSQLIntegrityConstraintViolationException e) {
+                    ids[i] = -1; // O H2 desfaz só o comando; a transação continua
+                    continue;
+                }
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    keys.next();
+                    ids[i] = keys.getInt(1);
+                }
+                addGenreBatch(conn, genres, ids[i], rows.get(i).generos, genreIds);
+            }
+            genres.executeBatch();
+        }
     }
 
     // --- MÉTODOS DE REVIEWS ---
@@ -181,7 +766,7 @@ public class DatabaseService {
                 pstmt.setString(7, data);
                 pstmt.executeUpdate();
             }
-            recalculateMovieRating(conn, idFilme); // Recalcula na criação
+            applyRatingDelta(conn, idFilme, nota, 1); // Soma a nova nota
             conn.commit();
         } catch (SQLException e) {
             if (conn != null) conn.rollback();
@@ -189,20 +774,26 @@ public class DatabaseService {
         } finally {
             if (conn != null) { conn.setAutoCommit(true); conn.close(); }
         }
+        fireRatingChanged(idFilme); // Com a conexão já devolvida: o evento relê o filme por outra
     }
 
     public void updateReview(int idReview, int nota, String titulo, String descricao, String data) throws SQLException {
         Connection conn = null;
+        int idFilme = -1;
         try {
             conn = getConnection();
             conn.setAutoCommit(false);
 
-            int idFilme = -1;
-            String sqlFind = "SELECT id_filme FROM reviews WHERE id = ?";
+            // FOR UPDATE: uma edição ou exclusão concorrente espera esta, e o delta parte da nota atual
+            int notaAntiga = 0;
+            String sqlFind = "SELECT id_filme, nota FROM reviews WHERE id = ? FOR UPDATE";
             try (PreparedStatement pstmt = conn.prepareStatement(sqlFind)) {
                 pstmt.setInt(1, idReview);
                 try(ResultSet rs = pstmt.executeQuery()) {
-                    if(rs.next()) idFilme = rs.getInt("id_filme");
+                    if(rs.next()) {
+                        idFilme = rs.getInt("id_filme");
+                        notaAntiga = rs.getInt("nota");
+                    }
                 }
             }
             if (idFilme == -1) throw new SQLException("Review não encontrada.");
@@ -214,9 +805,9 @@ public class DatabaseService {
                 pstmt.setString(3, descricao);
                 pstmt.setString(4, data);
                 pstmt.setInt(5, idReview);
-                pstmt.executeUpdate();
+                if (pstmt.executeUpdate() != 1) throw new SQLException("Review não encontrada.");
             }
-            recalculateMovieRating(conn, idFilme); // Recalcula na edição
+            applyRatingDelta(conn, idFilme, nota - notaAntiga, 0); // Aplica a diferença da nota
             conn.commit();
         } catch (SQLException e) {
             if (conn != null) conn.rollback();
@@ -224,30 +815,39 @@ public class DatabaseService {
         } finally {
             if (conn != null) { conn.setAutoCommit(true); conn.close(); }
         }
+        fireRatingChanged(idFilme);
     }
 
     public void deleteReview(int idReview) throws SQLException {
         Connection conn = null;
+        int idFilme = -1;
+        int removed;
         try {
             conn = getConnection();
             conn.setAutoCommit(false);
 
-            int idFilme = -1;
-            String sqlFind = "SELECT id_filme FROM reviews WHERE id = ?";
+            int nota = 0;
+            String sqlFind = "SELECT id_filme, nota FROM reviews WHERE id = ? FOR UPDATE";
             try (PreparedStatement pstmt = conn.prepareStatement(sqlFind)) {
                 pstmt.setInt(1, idReview);
                 try(ResultSet rs = pstmt.executeQuery()) {
-                    if(rs.next()) idFilme = rs.getInt("id_filme");
+                    if(rs.next()) {
+                        idFilme = rs.getInt("id_filme");
+                        nota = rs.getInt("nota");
+                    }
                 }
             }
-            if (idFilme == -1) throw new SQLException("Review não encontrada.");
+            if (idFilme == -1) {
+                conn.commit(); // Já excluída por uma chamada concorrente: nada a desfazer no agregado
+                return;
+            }
 
             String sqlDelete = "DELETE FROM reviews WHERE id = ?";
             try (PreparedStatement pstmt = conn.prepareStatement(sqlDelete)) {
                 pstmt.setInt(1, idReview);
-                pstmt.executeUpdate();
+                removed = pstmt.executeUpdate();
             }
-            recalculateMovieRating(conn, idFilme); // Recalcula na exclusão
+            if (removed == 1) applyRatingDelta(conn, idFilme, -nota, -1); // Subtrai a nota removida
             conn.commit();
         } catch (SQLException e) {
             if (conn != null) conn.rollback();
@@ -255,8 +855,11 @@ public class DatabaseService {
         } finally {
             if (conn != null) { conn.setAutoCommit(true); conn.close(); }
         }
+        if (removed == 1) fireRatingChanged(idFilme);
     }
 
+    // Reviews de um filme ou de um usuário são limitadas: saem materializadas,
+    // para uma falha do banco virar 500 antes de qualquer byte da resposta
     public List<JSONObject> getReviewsByMovieId(int idFilme) throws SQLException {
         String sql = "SELECT * FROM reviews WHERE id_filme = ? ORDER BY id DESC";
         return getReviewsList(sql, idFilme);
@@ -274,22 +877,61 @@ public class DatabaseService {
             pstmt.setInt(1, idParam);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    JSONObject review = new JSONObject();
-                    review.put("id", String.valueOf(rs.getInt("id")));
-                    review.put("id_filme", String.valueOf(rs.getInt("id_filme")));
-                    review.put("nome_usuario", rs.getString("nome_usuario"));
-                    review.put("nota", String.valueOf(rs.getInt("nota")));
-                    review.put("titulo", rs.getString("titulo"));
-                    review.put("descricao", rs.getString("descricao"));
-                    review.put("data", rs.getString("data"));
-                    review.put("editado", String.valueOf(rs.getBoolean("editado")));
-                    reviews.add(review);
+                    reviews.add(resultSetToReviewJson(rs));
                 }
             }
         }
         return reviews;
     }
 
+    public Page getReviewsPageByMovieId(int idFilme, int limite, Integer beforeId) throws SQLException {
+        return getReviewsPage("id_filme", idFilme, limite, beforeId);
+    }
+
+    public Page getReviewsPageByUserId(int idUsuario, int limite, Integer beforeId) throws SQLException {
+        return getReviewsPage("id_usuario", idUsuario, limite, beforeId);
+    }
+
+    // Página de reviews por id DESC; o cursor é o id da última review entregue
+    private Page getReviewsPage(String column, int idParam, int limite, Integer beforeId) throws SQLException {
+        String sql = "SELECT * FROM reviews WHERE " + column + " = ?" +
+                (beforeId != null ? " AND id < ?" : "") + " ORDER BY id DESC LIMIT ?";
+        List<JSONObject> reviews = new ArrayList<>();
+        String proximoCursor = null;
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            pstmt.setInt(i++, idParam);
+            if (beforeId != null) pstmt.setInt(i++, beforeId);
+            pstmt.setInt(i, limite + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int ultimoId = 0;
+                while (rs.next()) {
+                    if (reviews.size() == limite) {
+                        proximoCursor = String.valueOf(ultimoId);
+                        break;
+                    }
+                    reviews.add(resultSetToReviewJson(rs));
+                    ultimoId = rs.getInt("id");
+                }
+            }
+        }
+        return new Page(reviews, proximoCursor);
+    }
+
+    private JSONObject resultSetToReviewJson(ResultSet rs) throws SQLException {
+        JSONObject review = new JSONObject();
+        review.put("id", String.valueOf(rs.getInt("id")));
+        review.put("id_filme", String.valueOf(rs.getInt("id_filme")));
+        review.put("nome_usuario", rs.getString("nome_usuario"));
+        review.put("nota", String.valueOf(rs.getInt("nota")));
+        review.put("titulo", rs.getString("titulo"));
+        review.put("descricao", rs.getString("descricao"));
+        review.put("data", rs.getString("data"));
+        review.put("editado", String.valueOf(rs.getBoolean("editado")));
+        return review;
+    }
+
     public Review findReviewById(int reviewId) throws SQLException {
         String sql = "SELECT * FROM reviews WHERE id = ?";
         try (Connection conn = getConnection();
@@ -349,15 +991,16 @@ public class DatabaseService {
         }
     }
 
-    public List<User> getAllUsers() throws SQLException {
-        List<User> users = new ArrayList<>();
-        String sql = "SELECT id, username, role FROM users ORDER BY id";
+    // Linhas no formato de LISTAR_USUARIOS
+    public void streamUsersAsJson(RowHandler handler) throws SQLException, IOException {
+        String sql = "SELECT id, username FROM users ORDER BY id";
         try (Connection conn = getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                users.add(new User(rs.getInt("id"), rs.getString("username"), "", rs.getString("role")));
+                handler.accept(new JSONObject()
+                        .put("id", String.valueOf(rs.getInt("id")))
+                        .put("nome", rs.getString("username")));
             }
         }
-        return users;
     }
 
     public Object[][] getAllUsersForTable() throws SQLException {
@@ -374,32 +1017,43 @@ public class DatabaseService {
     // --- CORREÇÃO AQUI: Deletar Reviews + Recalcular Médias ---
     public void deleteReviewsByUserId(int userId) throws SQLException {
         Connection conn = null;
+        Set<Integer> filmesAfetados = new LinkedHashSet<>();
         try {
             conn = getConnection();
             conn.setAutoCommit(false); // Inicia transação
 
-            // 1. Recupera os IDs dos filmes que esse usuário avaliou ANTES de deletar
-            List<Integer> filmesAfetados = new ArrayList<>();
-            String sqlSelect = "SELECT id_filme FROM reviews WHERE id_usuario = ?";
+            // 1. Recupera (e trava) as reviews e notas que esse usuário deu ANTES de deletar
+            List<Integer> reviews = new ArrayList<>();
+            List<Integer> filmes = new ArrayList<>();
+            List<Integer> notas = new ArrayList<>();
+            String sqlSelect = "SELECT id, id_filme, nota FROM reviews WHERE id_usuario = ? FOR UPDATE";
             try (PreparedStatement pstmt = conn.prepareStatement(sqlSelect)) {
                 pstmt.setInt(1, userId);
                 try (ResultSet rs = pstmt.executeQuery()) {
                     while (rs.next()) {
-                        filmesAfetados.add(rs.getInt("id_filme"));
+                        reviews.add(rs.getInt("id"));
+                        filmes.add(rs.getInt("id_filme"));
+                        notas.add(rs.getInt("nota"));
                     }
                 }
             }
 
-            // 2. Deleta as reviews
-            String sqlDelete = "DELETE FROM reviews WHERE id_usuario = ?";
+            // 2. Deleta as reviews lidas, uma a uma, para saber quais saíram de fato
+            int[] removidas;
+            String sqlDelete = "DELETE FROM reviews WHERE id = ?";
             try (PreparedStatement pstmt = conn.prepareStatement(sqlDelete)) {
-                pstmt.setInt(1, userId);
-                pstmt.executeUpdate();
+                for (int idReview : reviews) {
+                    pstmt.setInt(1, idReview);
+                    pstmt.addBatch();
+                }
+                removidas = reviews.isEmpty() ? new int[0] : pstmt.executeBatch();
             }
 
-            // 3. Recalcula a média de cada filme afetado
-            for (int idFilme : filmesAfetados) {
-                recalculateMovieRating(conn, idFilme);
+            // 3. Subtrai cada nota removida do agregado do filme correspondente
+            for (int i = 0; i < removidas.length; i++) {
+                if (removidas[i] != 1) continue; // Excluída por uma chamada concorrente
+                applyRatingDelta(conn, filmes.get(i), -notas.get(i), -1);
+                filmesAfetados.add(filmes.get(i));
             }
 
             conn.commit();
@@ -412,32 +1066,184 @@ public class DatabaseService {
                 conn.close();
             }
         }
+        for (int idFilme : filmesAfetados) {
+            fireRatingChanged(idFilme);
+        }
     }
     // ----------------------------------------------------------
 
+    /**
+     * Ajusta soma, quantidade e média do filme em O(1), sem varrer as reviews.
+     * As expressões do SET enxergam os valores antigos da linha.
+     */
+    private void applyRatingDelta(Connection conn, int idFilme, long deltaSoma, int deltaQtd) throws SQLException {
+        String sql = "UPDATE filmes SET soma_notas = soma_notas + ?, qtd_avaliacoes = qtd_avaliacoes + ?, " +
+                "nota_media = CASE WHEN qtd_avaliacoes + ? = 0 THEN 0 " +
+                "ELSE CAST(soma_notas + ? AS DOUBLE) / (qtd_avaliacoes + ?) END WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, deltaSoma);
+            pstmt.setInt(2, deltaQtd);
+            pstmt.setInt(3, deltaQtd);
+            pstmt.setLong(4, deltaSoma);
+            pstmt.setInt(5, deltaQtd);
+            pstmt.setInt(6, idFilme);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Recalcula os agregados do zero a partir das reviews (usado só no reparo)
     private void recalculateMovieRating(Connection conn, int idFilme) throws SQLException {
-        String sqlCalc = "SELECT COUNT(*) as qtd, AVG(CAST(nota AS FLOAT)) as media FROM reviews WHERE id_filme = ?";
+        String sqlCalc = "SELECT COUNT(*) as qtd, COALESCE(SUM(nota), 0) as soma FROM reviews WHERE id_filme = ?";
         int qtd = 0;
-        double media = 0.0;
+        long soma = 0;
         try (PreparedStatement pstmt = conn.prepareStatement(sqlCalc)) {
             pstmt.setInt(1, idFilme);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     qtd = rs.getInt("qtd");
-                    media = rs.getDouble("media");
+                    soma = rs.getLong("soma");
                 }
             }
         }
-        if (qtd == 0) media = 0.0;
-        String sqlUpdate = "UPDATE filmes SET nota_media = ?, qtd_avaliacoes = ? WHERE id = ?";
+        double media = qtd == 0 ? 0.0 : soma / (double) qtd;
+        String sqlUpdate = "UPDATE filmes SET nota_media = ?, qtd_avaliacoes = ?, soma_notas = ? WHERE id = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(sqlUpdate)) {
             pstmt.setDouble(1, media);
             pstmt.setInt(2, qtd);
-            pstmt.setInt(3, idFilme);
+            pstmt.setLong(3, soma);
+            pstmt.setInt(4, idFilme);
             pstmt.executeUpdate();
         }
     }
 
+    /**
+     * Confere os agregados incrementais de todos os filmes contra um recálculo
+     * completo das reviews. Com repair = true corrige os divergentes.
+     * @return Quantidade de filmes com agregados divergentes.
+     */
+    public int verifyMovieRatings(boolean repair) throws SQLException {
+        String sql = "SELECT f.id FROM filmes f " +
+                "LEFT JOIN (SELECT id_filme, COUNT(*) AS qtd, SUM(nota) AS soma FROM reviews GROUP BY id_filme) r " +
+                "ON r.id_filme = f.id " +
+                "WHERE f.qtd_avaliacoes <> COALESCE(r.qtd, 0) " +
+                "OR f.soma_notas IS NULL OR f.soma_notas <> COALESCE(r.soma, 0) " +
+                "OR f.nota_media <> CAST(CASE WHEN r.qtd IS NULL THEN 0 ELSE CAST(r.soma AS DOUBLE) / r.qtd END AS DECIMAL(3, 1))";
+
+        List<Integer> divergentes = new ArrayList<>();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                divergentes.add(rs.getInt("id"));
+            }
+        }
+        if (!repair || divergentes.isEmpty()) return divergentes.size();
+
+        Connection conn = null;
+        try {
+            conn = getConnection();
+            conn.setAutoCommit(false);
+            for (int idFilme : divergentes) {
+                recalculateMovieRating(conn, idFilme);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) conn.rollback();
+            throw e;
+        } finally {
+            if (conn != null) { conn.setAutoCommit(true); conn.close(); }
+        }
+        for (int idFilme : divergentes) {
+            fireRatingChanged(idFilme);
+        }
+        return divergentes.size();
+    }
+
+    /** Recebe as linhas de uma consulta em streaming, ainda com o ResultSet aberto. */
+    public interface RowHandler {
+        void accept(JSONObject row) throws IOException;
+    }
+
+    /** Transação de {@link #inTransaction}; a conexão em {@code view} ignora commit/rollback/close. */
+    public static final class Transaction {
+
+        private final Connection connection;
+        private final Connection view;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private boolean rollbackOnly = false;
+
+        private Transaction(Connection connection) {
+            this.connection = connection;
+            this.view = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> invokeView(method, args));
+        }
+
+        public void setRollbackOnly() {
+            rollbackOnly = true;
+        }
+
+        public boolean isRollbackOnly() {
+            return rollbackOnly;
+        }
+
+        private Object invokeView(Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                case "setAutoCommit":
+                    return null; // Quem controla é inTransaction()
+                case "rollback":
+                    if (args == null) { // rollback(Savepoint) segue para a conexão
+                        rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                case "getAutoCommit":
+                    return false;
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /** Filme já validado para {@link #importMovies}. */
+    public static final class MovieRow {
+        final String titulo, diretor, ano, sinopse;
+        final List<String> generos;
+
+        public MovieRow(String titulo, String diretor, String ano, List<String> generos, String sinopse) {
+            this.titulo = titulo; this.diretor = diretor; this.ano = ano; this.generos = generos; this.sinopse = sinopse;
+        }
+
+        // Mesmas colunas da constraint uc_filme
+        public String key() {
+            return key(titulo, diretor, ano);
+        }
+
+        static String key(String titulo, String diretor, String ano) {
+            return titulo + '\u0000' + diretor + '\u0000' + ano;
+        }
+
+        void bind(PreparedStatement pstmt) throws SQLException {
+            pstmt.setString(1, titulo);
+            pstmt.setString(2, diretor);
+            pstmt.setString(3, ano);
+            pstmt.setString(4, sinopse);
+        }
+    }
+
+    // Uma página de resultados e o cursor da próxima (null na última página)
+    public static class Page {
+        public final List<JSONObject> itens;
+        public final String proximoCursor;
+        public Page(List<JSONObject> itens, String proximoCursor) { this.itens = itens; this.proximoCursor = proximoCursor; }
+    }
+
     public static class Review {
         public int id, idFilme, idUsuario, nota;
         public Review(int id, int f, int u, int n) { this.id=id; this.idFilme=f; this.idUsuario=u; this.nota=n; }
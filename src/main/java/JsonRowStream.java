@@ -0,0 +1,95 @@
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.sql.SQLException;
+
+/**
+ * Array JSON de uma resposta que é gerado linha a linha direto do ResultSet,
+ * sem montar a lista inteira em memória. A consulta só roda quando o
+ * {@link ResponseWriter} escreve a resposta no socket; cada linha é
+ * serializada e descartada em seguida.
+ *
+ * Enquanto a resposta é escrita a conexão do pool fica emprestada, então um
+ * cliente lento segura uma conexão do banco até terminar de ler.
+ *
+ * Como o "status":"200" já saiu quando a consulta roda, uma falha do banco
+ * não vira 500: a linha fica incompleta e a conexão é encerrada. Por isso só
+ * as listagens completas (LISTAR_FILMES fora do cache, LISTAR_USUARIOS) usam
+ * streaming; respostas limitadas são montadas antes.
+ */
+public final class JsonRowStream implements JSONString {
+
+    /** Consulta que entrega as linhas em ordem ao handler. */
+    @FunctionalInterface
+    public interface Source {
+        void forEach(DatabaseService.RowHandler handler) throws SQLException, IOException;
+    }
+
+    private final Source source;
+    private int rowCount = -1;
+
+    public JsonRowStream(Source source) {
+        this.source = source;
+    }
+
+    /**
+     * Escreve o array no mesmo formato de {@code JSONArray.write}, byte a byte.
+     * Uma falha no meio deixa o array incompleto no writer.
+     */
+    public void writeTo(Writer out) throws IOException {
+        int[] count = {0};
+        out.write('[');
+        try {
+            source.forEach(row -> {
+                if (count[0]++ > 0) out.write(',');
+                try {
+                    row.write(out);
+                } catch (JSONException e) {
+                    throw unwrap(e);
+                }
+            });
+        } catch (SQLException e) {
+            throw new IOException("Falha ao ler linhas do banco: " + e.getMessage(), e);
+        }
+        out.write(']');
+        rowCount = count[0];
+    }
+
+    /** Lê todas as linhas agora, para quando a resposta não pode esperar a escrita (ex.: LOTE). */
+    public JSONArray toJSONArray() throws SQLException {
+        JSONArray rows = new JSONArray();
+        try {
+            source.forEach(rows::put);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // O handler acima não faz I/O
+        }
+        rowCount = rows.length();
+        return rows;
+    }
+
+    /** Linhas escritas na última chamada de {@link #writeTo}, ou -1. */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    // Caminho não-streaming (ex.: toString() da resposta inteira): materializa o array
+    @Override
+    public String toJSONString() {
+        StringWriter sw = new StringWriter();
+        try {
+            writeTo(sw);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return sw.toString();
+    }
+
+    private static IOException unwrap(JSONException e) {
+        return e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+    }
+}
@@ -1,17 +1,57 @@
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.JwtException;
+import org.json.JSONObject;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Emissão e validação dos tokens JWT.
+ *
+ * Instância única com um parser compartilhado (o JwtParser do jjwt é imutável
+ * e thread-safe) e um cache dos claims já verificados, indexado pelo próprio
+ * token. Uma requisição repetida com o mesmo token não refaz o HMAC nem o
+ * parse; a entrada vale até o "exp" do token.
+ *
+ * Os Claims devolvidos são compartilhados entre requisições: quem os usa não
+ * deve alterá-los.
+ */
 public class JwtService {
 
     // Chave secreta para assinar o token. NUNCA exponha isso publicamente.
     private static final SecretKey SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
     private static final long EXPIRATION_TIME_MS = 3600_000; // 1 hora
+    private static final long PURGE_INTERVAL_MS = 1000;
+
+    private static final JwtService INSTANCE = new JwtService();
+
+    public static JwtService getInstance() {
+        return INSTANCE;
+    }
+
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(SECRET_KEY).build();
+
+    private volatile int maxEntries = 10_000;
+    private final ConcurrentHashMap<String, VerifiedClaims> verified = new ConcurrentHashMap<>();
+    private volatile long lastPurge = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private JwtService() {
+    }
+
+    public void configure(ServerConfig config) {
+        this.maxEntries = config.getTokenCacheSize();
+        verified.clear();
+    }
 
     /**
      * Gera um token JWT para um usuário. [cite: 33]
@@ -39,10 +79,63 @@ public class JwtService {
             throw new JwtException("Token não fornecido");
         }
 
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        long now = System.currentTimeMillis();
+        VerifiedClaims cached = verified.get(token);
+        if (cached != null) {
+            if (now < cached.expiresAt) {
+                hits.increment();
+                return cached.claims;
+            }
+            verified.remove(token, cached); // Expirou: o parser abaixo lança a exceção certa
+        }
+
+        misses.increment();
+        Claims claims = parser.parseClaimsJws(token).getBody();
+
+        // Só tokens com "exp" entram no cache; sem ele não há quando expirar a entrada
+        Date exp = claims.getExpiration();
+        if (exp != null && maxEntries > 0) {
+            if (verified.size() >= maxEntries) evict(now);
+            verified.put(token, new VerifiedClaims(claims, exp.getTime()));
+        }
+        return claims;
+    }
+
+    // Remove as entradas expiradas (no máximo uma varredura por segundo); se
+    // nenhuma expirou, descarta uma qualquer
+    private void evict(long now) {
+        boolean removed = false;
+        if (now - lastPurge >= PURGE_INTERVAL_MS) {
+            lastPurge = now;
+            removed = verified.values().removeIf(v -> now >= v.expiresAt);
+        }
+        if (!removed) {
+            Iterator<String> it = verified.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    public JSONObject getStats() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return new JSONObject()
+                .put("tamanho_max", maxEntries)
+                .put("tokens_em_cache", verified.size())
+                .put("hits", h)
+                .put("misses", total - h)
+                .put("hit_rate", total == 0 ? 0.0 : h / (double) total);
+    }
+
+    private static final class VerifiedClaims {
+        final Claims claims;
+        final long expiresAt;
+
+        VerifiedClaims(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
     }
-}
\ No newline at end of file
+}
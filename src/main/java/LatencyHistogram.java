@@ -0,0 +1,94 @@
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latência sem locks, em microssegundos.
+ *
+ * Buckets log-lineares (como no HdrHistogram): de 0 a 63 µs um bucket por
+ * microssegundo; acima disso cada potência de dois é dividida em 32 partes,
+ * o que dá no máximo ~3% de erro em qualquer percentil. Vai até ~12 dias;
+ * valores maiores caem no último bucket. Gravar é um incremento atômico num
+ * array fixo, sem alocação.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int LINEAR = 1 << SUB_BITS;       // 64 buckets de 1 µs
+    private static final int HALF = LINEAR >> 1;           // 32 buckets por potência de dois
+    private static final int MAX_SHIFT = 34;
+    private static final int BUCKETS = MAX_SHIFT * HALF + LINEAR;
+    private static final long MAX_VALUE = ((long) LINEAR << MAX_SHIFT) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(indexOf(Math.min(micros, MAX_VALUE)));
+        total.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < LINEAR) return (int) micros;
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BITS - 1);
+        return shift * HALF + (int) (micros >>> shift);
+    }
+
+    // Maior valor que cai no bucket
+    static long upperBound(int index) {
+        if (index < LINEAR) return index;
+        int shift = index / HALF - 1;
+        long sub = index - shift * HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * Percentis em milissegundos (p50, p90, p99, p99.9), média e máximo.
+     * As contagens são lidas sem parar quem grava; durante a leitura o
+     * resultado pode misturar alguns registros a mais ou a menos.
+     */
+    public JSONObject snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        long max = maxMicros.get();
+        JSONObject json = new JSONObject()
+                .put("p50", toMillis(percentile(snapshot, n, 0.50, max)))
+                .put("p90", toMillis(percentile(snapshot, n, 0.90, max)))
+                .put("p99", toMillis(percentile(snapshot, n, 0.99, max)))
+                .put("p99_9", toMillis(percentile(snapshot, n, 0.999, max)))
+                .put("max", toMillis(max));
+        long recorded = total.sum();
+        json.put("media", toMillis(recorded > 0 ? sumMicros.sum() / recorded : 0));
+        return json;
+    }
+
+    private static long percentile(long[] snapshot, long n, double quantile, long max) {
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Leitura das linhas de requisição do motor bloqueante, com as mesmas regras
+ * do {@link NioServerEngine}: linhas terminadas em '\n' (um '\r' antes dele é
+ * descartado), em UTF-8, com no máximo {@link ClientRequest#MAX_LINE_BYTES}
+ * bytes. Ao contrário do BufferedReader, uma linha sem fim não cresce na
+ * memória até estourar o heap.
+ */
+final class LineReader {
+
+    /** A linha passou do limite; o resto dela não foi lido. */
+    static final class LineTooLongException extends IOException {
+        LineTooLongException() {
+            super("linha acima de " + ClientRequest.MAX_LINE_BYTES + " bytes");
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[16 * 1024];
+    private int pos = 0;
+    private int limit = 0;
+    private byte[] line = new byte[1024];
+    private int length = 0;
+
+    LineReader(InputStream in) {
+        this.in = in;
+    }
+
+    /** @return a próxima linha, a última mesmo sem '\n', ou null no fim da entrada. */
+    String readLine() throws IOException {
+        length = 0;
+        while (true) {
+            if (pos == limit) {
+                int read = in.read(buffer);
+                if (read < 0) return length > 0 ? decode() : null;
+                pos = 0;
+                limit = read;
+            }
+            int start = pos;
+            while (pos < limit && buffer[pos] != '\n') pos++;
+            append(start, pos - start);
+            if (pos < limit) {
+                pos++; // Consome o '\n'
+                return decode();
+            }
+        }
+    }
+
+    private void append(int start, int count) throws LineTooLongException {
+        if (count == 0) return;
+        if (length + count > ClientRequest.MAX_LINE_BYTES) throw new LineTooLongException();
+        if (length + count > line.length) {
+            line = Arrays.copyOf(line, Math.min(Math.max(line.length * 2, length + count), ClientRequest.MAX_LINE_BYTES));
+        }
+        System.arraycopy(buffer, start, line, length, count);
+        length += count;
+    }
+
+    private String decode() {
+        int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+        String result = new String(line, 0, end, StandardCharsets.UTF_8);
+        if (line.length > 64 * 1024) line = new byte[1024]; // Não segura o buffer de uma importação grande
+        return result;
+    }
+}
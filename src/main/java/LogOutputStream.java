@@ -0,0 +1,33 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * OutputStream que repassa cada linha para o {@link ServerLog}. Usado pela
+ * GUI para capturar o que ainda for escrito direto em System.out/System.err
+ * (ex.: printStackTrace).
+ */
+public class LogOutputStream extends OutputStream {
+
+    private final boolean error;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    public LogOutputStream(boolean error) {
+        this.error = error;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (b == '\r') {
+            // Ignora carriage return
+            return;
+        }
+        if (b == '\n') {
+            String line = buffer.toString(StandardCharsets.UTF_8);
+            buffer.reset();
+            if (error) ServerLog.error(line); else ServerLog.info(line);
+        } else {
+            buffer.write(b);
+        }
+    }
+}
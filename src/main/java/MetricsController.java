@@ -0,0 +1,43 @@
+import org.json.JSONObject;
+
+/**
+ * Operação: METRICAS (somente ADM)
+ *
+ * {"operacao":"METRICAS","token":"..."}
+ * Devolve em "metricas" as métricas por operação do {@link MetricsRegistry}
+ * (total, erros por status, requisições por segundo e latência p50/p90/p99/
+ * p99.9 em ms) junto com os medidores de carga do servidor, do pool do banco
+ * e do controle de admissão.
+ */
+public class MetricsController {
+
+    private static final MetricsController INSTANCE = new MetricsController();
+
+    public static MetricsController getInstance() {
+        return INSTANCE;
+    }
+
+    private final DatabaseService db;
+
+    private MetricsController() {
+        this.db = DatabaseService.getInstance();
+    }
+
+    // server pode ser null (router sem servidor): fica sem os medidores de carga
+    public JSONObject getMetrics(UserPrincipal principal, VoteFlixServer server) {
+        if (!principal.isAdmin()) {
+            return createErrorResponse(403, "Erro: sem permissão");
+        }
+
+        JSONObject metricas = MetricsRegistry.getInstance().snapshot()
+                .put("banco", db.getPoolStats())
+                .put("admissao", AdmissionControl.getInstance().getStats());
+        if (server != null) metricas.put("carga", server.getLoadStats());
+
+        return createErrorResponse(200, "Sucesso: operação realizada com sucesso").put("metricas", metricas);
+    }
+
+    private JSONObject createErrorResponse(int status, String message) {
+        return new JSONObject().put("status", String.valueOf(status)).put("mensagem", message);
+    }
+}
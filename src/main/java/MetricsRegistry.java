@@ -0,0 +1,151 @@
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas por operação: total, erros por status e histograma de latência
+ * ({@link LatencyHistogram}). Gravado pelo {@link RequestRouter} (e pelo
+ * {@link RequestPipeline} para as respostas em streaming, cuja consulta só
+ * roda durante a escrita). Nada aqui usa lock: contadores são LongAdder e o
+ * mapa só ganha uma entrada na primeira vez que cada operação aparece.
+ *
+ * Leitura pela operação METRICAS (ADM) e, com --metrics-file, por um arquivo
+ * regravado a cada --metrics-interval-s segundos.
+ */
+public class MetricsRegistry {
+
+    /** Nome usado para requisições sem JSON válido ou sem "operacao". */
+    public static final String INVALID_OPERATION = "INVALIDA";
+    // Operações desconhecidas também ganham entrada; acima deste número de nomes vão todas para OUTRAS
+    private static final int MAX_OPERATIONS = 64;
+    private static final String OTHER_OPERATIONS = "OUTRAS";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile long startedAt = System.currentTimeMillis();
+    private ScheduledExecutorService dumper;
+
+    private MetricsRegistry() {
+    }
+
+    public void record(String operacao, String status, long nanos) {
+        OperationMetrics metrics = operations.get(operacao);
+        if (metrics == null) {
+            String name = operations.size() < MAX_OPERATIONS ? operacao : OTHER_OPERATIONS;
+            metrics = operations.computeIfAbsent(name, k -> new OperationMetrics());
+        }
+        metrics.record(status, nanos);
+    }
+
+    /** Zera as métricas e, se configurado, começa a gravar o arquivo periódico. */
+    public synchronized void start(ServerConfig config) {
+        operations.clear();
+        startedAt = System.currentTimeMillis();
+        stop();
+        String file = config.getMetricsFile();
+        if (file == null || file.isEmpty()) return;
+
+        Path path = Paths.get(file);
+        long interval = Math.max(1, config.getMetricsIntervalSeconds());
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metricas");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(path), interval, interval, TimeUnit.SECONDS);
+        ServerLog.info("[MÉTRICAS] Gravando em " + path.toAbsolutePath() + " a cada " + interval + "s.");
+    }
+
+    /** Para a gravação periódica; o arquivo fica com a última foto. */
+    public synchronized void stop() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    public JSONObject snapshot() {
+        long now = System.currentTimeMillis();
+        double seconds = Math.max(1, now - startedAt) / 1000.0;
+        long total = 0, errors = 0;
+        JSONObject porOperacao = new JSONObject();
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            JSONObject json = entry.getValue().toJson(seconds);
+            total += json.getLong("total");
+            errors += json.getLong("erros");
+            porOperacao.put(entry.getKey(), json);
+        }
+
+        return new JSONObject()
+                .put("momento", Instant.ofEpochMilli(now).toString())
+                .put("segundos", Math.round(seconds))
+                .put("total", total)
+                .put("erros", errors)
+                .put("por_segundo", Math.round(total / seconds * 100) / 100.0)
+                .put("operacoes", porOperacao);
+    }
+
+    // Grava num temporário e renomeia: quem lê o arquivo nunca vê uma foto pela metade
+    private void dump(Path path) {
+        try {
+            Path absolute = path.toAbsolutePath();
+            Path tmp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                out.write(snapshot().toString(2));
+                out.write('\n');
+            }
+            Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            ServerLog.error("[MÉTRICAS] Falha ao gravar " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static final class OperationMetrics {
+        private final LongAdder total = new LongAdder();
+        private final Map<String, LongAdder> errorsByStatus = new ConcurrentHashMap<>();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(String status, long nanos) {
+            total.increment();
+            if (!status.startsWith("2")) {
+                errorsByStatus.computeIfAbsent(status, k -> new LongAdder()).increment();
+            }
+            latency.recordNanos(nanos);
+        }
+
+        JSONObject toJson(double seconds) {
+            long count = total.sum();
+            long errors = 0;
+            JSONObject porStatus = new JSONObject();
+            for (Map.Entry<String, LongAdder> entry : errorsByStatus.entrySet()) {
+                long n = entry.getValue().sum();
+                porStatus.put(entry.getKey(), n);
+                errors += n;
+            }
+            return new JSONObject()
+                    .put("total", count)
+                    .put("erros", errors)
+                    .put("erros_por_status", porStatus)
+                    .put("por_segundo", Math.round(count / seconds * 100) / 100.0)
+                    .put("latencia_ms", latency.snapshot());
+        }
+    }
+}
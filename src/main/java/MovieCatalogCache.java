@@ -0,0 +1,187 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache read-through do catálogo de filmes para LISTAR_FILMES e BUSCAR_FILME_ID.
+ *
+ * Guarda os filmes como JSON e a listagem completa já serializada, que vai
+ * direto para a resposta como {@link JSONString}. Catálogos maiores que o
+ * limite não são guardados e saem em streaming ({@link JsonRowStream}). É invalidado pelos eventos
+ * do {@link DatabaseService} (escritas de filmes e de reviews).
+ *
+ * Não é usado dentro de {@link DatabaseService#inTransaction}.
+ *
+ * Os JSONObject devolvidos são compartilhados entre requisições: quem os usa
+ * não deve alterá-los.
+ */
+public class MovieCatalogCache implements CatalogListener {
+
+    private static final MovieCatalogCache INSTANCE = new MovieCatalogCache(DatabaseService.getInstance());
+
+    public static MovieCatalogCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final DatabaseService db;
+    private volatile int maxEntries = 10_000;
+
+    private final ConcurrentHashMap<Integer, JSONObject> movies = new ConcurrentHashMap<>();
+    private volatile Listing listing;
+
+    // Incrementado a cada invalidação (antes de remover as entradas); um valor
+    // lido do banco só fica guardado se nenhuma escrita aconteceu entre a
+    // leitura e o fim do put. Por isso a versão é conferida de novo depois de
+    // guardar: uma invalidação que passou entre a conferência e o put não
+    // encontrou nada para remover, e quem guardou desfaz o próprio put.
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder listingHits = new LongAdder();
+    private final LongAdder listingMisses = new LongAdder();
+    private final LongAdder listingStreamed = new LongAdder();
+    private final LongAdder movieHits = new LongAdder();
+    private final LongAdder movieMisses = new LongAdder();
+
+    private MovieCatalogCache(DatabaseService db) {
+        this.db = db;
+        db.addCatalogListener(this);
+    }
+
+    public void configure(ServerConfig config) {
+        this.maxEntries = config.getCatalogCacheSize();
+        clear();
+    }
+
+    /**
+     * Listagem completa ordenada por título, ou null se o catálogo tiver mais
+     * filmes que o limite do cache; nesse caso quem chama deve ler do banco
+     * em streaming em vez de materializar a lista.
+     */
+    public Listing getAllMovies() throws SQLException {
+        if (db.isInTransaction()) return null; // Ver findMovieById
+
+        Listing current = listing;
+        if (current != null) {
+            listingHits.increment();
+            return current;
+        }
+
+        listingMisses.increment();
+        long before = version.get();
+        if (db.countMovies() > maxEntries) {
+            listingStreamed.increment();
+            return null;
+        }
+        List<JSONObject> filmes = db.getAllMoviesAsJson();
+        Listing loaded = new Listing(filmes);
+        if (filmes.size() <= maxEntries && version.get() == before) {
+            listing = loaded;
+            if (version.get() != before && listing == loaded) listing = null;
+        }
+        return loaded;
+    }
+
+    public JSONObject findMovieById(int id) throws SQLException {
+        // Dentro de uma transação (LOTE atômico) o cache é ignorado: ele não vê
+        // as escritas ainda não confirmadas e não pode guardar o que pode ser desfeito
+        if (db.isInTransaction()) return db.findMovieByIdAsJson(id);
+
+        JSONObject filme = movies.get(id);
+        if (filme != null) {
+            movieHits.increment();
+            return filme;
+        }
+
+        movieMisses.increment();
+        long before = version.get();
+        filme = db.findMovieByIdAsJson(id);
+        if (filme != null && version.get() == before) {
+            if (movies.size() >= maxEntries) evictOne();
+            movies.put(id, filme);
+            if (version.get() != before) movies.remove(id, filme); // Só o que este put guardou
+        }
+        return filme;
+    }
+
+    private void evictOne() {
+        Iterator<Integer> it = movies.keySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    @Override
+    public void movieChanged(int idFilme) {
+        version.incrementAndGet();
+        movies.remove(idFilme);
+        listing = null;
+    }
+
+    @Override
+    public void movieRemoved(int idFilme) {
+        movieChanged(idFilme);
+    }
+
+    public void clear() {
+        version.incrementAndGet();
+        movies.clear();
+        listing = null;
+    }
+
+    public JSONObject getStats() {
+        return new JSONObject()
+                .put("tamanho_max", maxEntries)
+                .put("filmes_em_cache", movies.size())
+                .put("listagem_em_cache", listing != null)
+                .put("listagem_hits", listingHits.sum())
+                .put("listagem_misses", listingMisses.sum())
+                .put("listagem_hit_rate", hitRate(listingHits, listingMisses))
+                .put("listagem_streaming", listingStreamed.sum())
+                .put("filme_hits", movieHits.sum())
+                .put("filme_misses", movieMisses.sum())
+                .put("filme_hit_rate", hitRate(movieHits, movieMisses));
+    }
+
+    private static double hitRate(LongAdder hits, LongAdder misses) {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : h / (double) total;
+    }
+
+    /**
+     * Listagem imutável de filmes; o JSON do array é gerado uma vez só e
+     * reaproveitado por todas as respostas enquanto a listagem estiver em cache.
+     */
+    public static final class Listing implements JSONString {
+
+        private final List<JSONObject> filmes;
+        private volatile String json;
+
+        Listing(List<JSONObject> filmes) {
+            this.filmes = Collections.unmodifiableList(filmes);
+        }
+
+        public List<JSONObject> getFilmes() {
+            return filmes;
+        }
+
+        @Override
+        public String toJSONString() {
+            String s = json;
+            if (s == null) {
+                s = new JSONArray(filmes).toString();
+                json = s;
+            }
+            return s;
+        }
+    }
+}
@@ -1,49 +1,68 @@
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.JwtException;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class MovieController {
 
+    private static final MovieController INSTANCE = new MovieController();
+
+    public static MovieController getInstance() {
+        return INSTANCE;
+    }
+
     private final DatabaseService db;
-    private final JwtService jwt;
+    private final MovieCatalogCache catalog;
+    private final MovieSearchIndex searchIndex;
 
-    public MovieController() {
+    private static final int RANKING_DEFAULT_LIMIT = 10;
+
+    private MovieController() {
         this.db = DatabaseService.getInstance();
-        this.jwt = new JwtService();
+        this.catalog = MovieCatalogCache.getInstance();
+        this.searchIndex = MovieSearchIndex.getInstance();
     }
 
-    private Claims validateAdmin(String token) throws JwtException, SecurityException {
-        Claims claims = jwt.validateAndGetClaims(token);
-        if (!"admin".equals(claims.get("role", String.class))) {
+    private void validateAdmin(UserPrincipal principal) throws SecurityException {
+        if (!principal.isAdmin()) {
             throw new SecurityException("Acesso negado: Requer privilégios de ADM");
         }
-        return claims;
     }
 
     // LISTAR_FILMES [cite: 9]
-    public JSONObject listAllMovies(String token) {
+    public JSONObject listAllMovies(UserPrincipal principal, JSONObject request) {
         try {
-            jwt.validateAndGetClaims(token);
-            List<JSONObject> filmes = db.getAllMoviesAsJson();
+            // Paginação opcional por keyset (limite/cursor)
+            Pagination pagination = Pagination.fromRequest(request);
+            if (pagination != null) {
+                Pagination.MovieCursor after = pagination.getCursor() == null ? null : Pagination.decodeMovieCursor(pagination.getCursor());
+                DatabaseService.Page page = db.getMoviesPage(pagination.getLimite(), after);
+                return new JSONObject()
+                        .put("status", "200")
+                        .put("mensagem", "Sucesso: Operação realizada com sucesso")
+                        .put("filmes", new JSONArray(page.itens))
+                        .put("proximo_cursor", nextCursor(page));
+            }
+
+            // A listagem em cache já vem serializada (JSONString); catálogos
+            // grandes demais para o cache são escritos direto do banco
+            Object filmes = catalog.getAllMovies();
+            if (filmes == null) filmes = new JsonRowStream(db::streamAllMovies);
             return new JSONObject()
                     .put("status", "200")
                     .put("mensagem", "Sucesso: Operação realizada com sucesso")
-                    .put("filmes", new JSONArray(filmes));
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
+                    .put("filmes", filmes);
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
         } catch (SQLException e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
     // BUSCAR_FILME_ID [cite: 14]
-    public JSONObject getMovieById(String token, JSONObject request) {
+    public JSONObject getMovieById(UserPrincipal principal, JSONObject request) {
         try {
-            jwt.validateAndGetClaims(token);
-
             // Verifica o nome exato da chave no protocolo (id_filme)
             String idStr = request.optString("id_filme");
             if (idStr == null || idStr.isEmpty()) {
@@ -52,31 +71,119 @@ public class MovieController {
 
             int id = Integer.parseInt(idStr);
 
-            JSONObject filme = db.findMovieByIdAsJson(id);
+            JSONObject filme = catalog.findMovieById(id);
             if (filme == null) {
                 return createErrorResponse(404, "Erro: Recurso inexistente"); // [cite: 17]
             }
 
-            List<JSONObject> reviews = db.getReviewsByMovieId(id);
+            Pagination pagination = Pagination.fromRequest(request);
+            if (pagination != null) {
+                Integer before = pagination.getCursor() == null ? null : Pagination.decodeReviewCursor(pagination.getCursor());
+                DatabaseService.Page page = db.getReviewsPageByMovieId(id, pagination.getLimite(), before);
+                return new JSONObject()
+                        .put("status", "200")
+                        .put("mensagem", "Sucesso: operação realizada com sucesso")
+                        .put("filme", filme)
+                        .put("reviews", new JSONArray(page.itens))
+                        .put("proximo_cursor", nextCursor(page));
+            }
 
             return new JSONObject()
                     .put("status", "200")
                     .put("mensagem", "Sucesso: operação realizada com sucesso")
                     .put("filme", filme)
-                    .put("reviews", new JSONArray(reviews)); // [cite: 15]
+                    .put("reviews", new JSONArray(db.getReviewsByMovieId(id))); // [cite: 15]
+
+        } catch (IllegalArgumentException e) { // Inclui NumberFormatException
+            return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
+        } catch (SQLException e) {
+            return createErrorResponse(500, "Erro: Falha interna do servidor");
+        }
+    }
+
+    /**
+     * Operação: BUSCAR_FILMES
+     *
+     * Filtros opcionais: "titulo" e "diretor" (palavras ou começos de palavras,
+     * sem diferenciar maiúsculas e acentos), "genero" (lista, todos exigidos),
+     * "genero_qualquer" (lista, basta um), "ano_min"/"ano_max". "ordenar": "titulo" (padrão), "nota" ou "nota_asc".
+     * Devolve até "limite" filmes e em "total" quantos casaram.
+     */
+    public JSONObject searchMovies(UserPrincipal principal, JSONObject request) {
+        try {
+            Pagination pagination = Pagination.fromRequest(request);
+            if (pagination != null && pagination.getCursor() != null) {
+                throw new IllegalArgumentException("a busca não usa cursor");
+            }
+            int limite = pagination != null ? pagination.getLimite() : Pagination.DEFAULT_LIMIT;
+
+            List<String> generos = genreList(request.optJSONArray("genero"));
+            List<String> generosQualquer = genreList(request.optJSONArray("genero_qualquer"));
+
+            MovieSearchIndex.Order order;
+            switch (request.optString("ordenar", "titulo")) {
+                case "titulo": order = MovieSearchIndex.Order.TITULO; break;
+                case "nota": order = MovieSearchIndex.Order.NOTA_DESC; break;
+                case "nota_asc": order = MovieSearchIndex.Order.NOTA_ASC; break;
+                default: throw new IllegalArgumentException("ordenar inválido");
+            }
 
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
-        } catch (NumberFormatException e) {
+            MovieSearchIndex.Query query = new MovieSearchIndex.Query(
+                    request.optString("titulo", null), request.optString("diretor", null), generos, generosQualquer,
+                    optYear(request, "ano_min"), optYear(request, "ano_max"), order, limite);
+
+            if (!searchIndex.isBuilt()) searchIndex.rebuild(); // Só após uma falha de atualização
+            MovieSearchIndex.Result result = searchIndex.search(query);
+            return new JSONObject()
+                    .put("status", "200")
+                    .put("mensagem", "Sucesso: Operação realizada com sucesso")
+                    .put("filmes", new JSONArray(result.filmes))
+                    .put("total", String.valueOf(result.total));
+        } catch (IllegalArgumentException e) { // Inclui NumberFormatException
             return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
         } catch (SQLException e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
-    public JSONObject createMovie(String token, JSONObject request) {
+    /**
+     * Operação: RANKING_FILMES
+     *
+     * Os "limite" filmes (padrão 10) de maior nota, opcionalmente de um
+     * "genero" e com pelo menos "min_avaliacoes" avaliações.
+     */
+    public JSONObject rankMovies(UserPrincipal principal, JSONObject request) {
         try {
-            validateAdmin(token);
+            Pagination pagination = Pagination.fromRequest(request);
+            if (pagination != null && pagination.getCursor() != null) {
+                throw new IllegalArgumentException("o ranking não usa cursor");
+            }
+            int limite = pagination != null ? pagination.getLimite() : RANKING_DEFAULT_LIMIT;
+
+            String genero = request.optString("genero", null);
+            int minAvaliacoes = request.has("min_avaliacoes") ? Integer.parseInt(request.get("min_avaliacoes").toString()) : 0;
+            if (minAvaliacoes < 0) throw new IllegalArgumentException("min_avaliacoes negativo");
+
+            if (!searchIndex.isBuilt()) searchIndex.rebuild(); // Só após uma falha de atualização
+            return new JSONObject()
+                    .put("status", "200")
+                    .put("mensagem", "Sucesso: Operação realizada com sucesso")
+                    .put("filmes", new JSONArray(searchIndex.topRated(genero, minAvaliacoes, limite)));
+        } catch (IllegalArgumentException e) { // Inclui NumberFormatException
+            return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
+        } catch (SQLException e) {
+            return createErrorResponse(500, "Erro: Falha interna do servidor");
+        }
+    }
+
+    private static Integer optYear(JSONObject request, String key) {
+        if (!request.has(key)) return null;
+        return Integer.parseInt(request.get(key).toString());
+    }
+
+    public JSONObject createMovie(UserPrincipal principal, JSONObject request) {
+        try {
+            validateAdmin(principal);
             JSONObject movieData = request.getJSONObject("filme");
             String titulo = movieData.optString("titulo");
             String diretor = movieData.optString("diretor");
@@ -87,22 +194,20 @@ public class MovieController {
             String error = ValidationService.validateMovie(titulo, diretor, ano, sinopse, generosArray);
             if (error != null) return createErrorResponse(405, "Erro: Campos inválidos, verifique o tipo e quantidade de caracteres"); // [cite: 4]
 
-            db.createMovie(titulo, diretor, ano, formatGenres(generosArray), sinopse);
+            db.createMovie(titulo, diretor, ano, genreList(generosArray), sinopse);
             return createSuccessResponse(201, "Sucesso: Recurso cadastrado");
         } catch (SecurityException e) {
             return createErrorResponse(403, "Erro: sem permissão");
         } catch (org.h2.jdbc.JdbcSQLIntegrityConstraintViolationException e) {
             return createErrorResponse(409, "Erro: Recurso ja existe"); // [cite: 4]
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
         } catch (Exception e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
-    public JSONObject updateMovie(String token, JSONObject request) {
+    public JSONObject updateMovie(UserPrincipal principal, JSONObject request) {
         try {
-            validateAdmin(token);
+            validateAdmin(principal);
             JSONObject movieData = request.getJSONObject("filme");
             int id = Integer.parseInt(movieData.getString("id"));
             String titulo = movieData.optString("titulo");
@@ -114,44 +219,44 @@ public class MovieController {
             String error = ValidationService.validateMovie(titulo, diretor, ano, sinopse, generosArray);
             if (error != null) return createErrorResponse(405, "Erro: Campos inválidos, verifique o tipo e quantidade de caracteres");
 
-            if (db.findMovieByIdAsJson(id) == null) return createErrorResponse(404, "Erro: Recurso inexistente");
+            if (catalog.findMovieById(id) == null) return createErrorResponse(404, "Erro: Recurso inexistente");
 
-            db.updateMovie(id, titulo, diretor, ano, formatGenres(generosArray), sinopse);
+            db.updateMovie(id, titulo, diretor, ano, genreList(generosArray), sinopse);
             return createSuccessResponse(200, "Sucesso: operação realizada com sucesso");
         } catch (SecurityException e) {
             return createErrorResponse(403, "Erro: sem permissão");
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
         } catch (Exception e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
-    public JSONObject deleteMovie(String token, JSONObject request) {
+    public JSONObject deleteMovie(UserPrincipal principal, JSONObject request) {
         try {
-            validateAdmin(token);
+            validateAdmin(principal);
             int id = Integer.parseInt(request.getString("id"));
-            if (db.findMovieByIdAsJson(id) == null) return createErrorResponse(404, "Erro: Recurso inexistente");
+            if (catalog.findMovieById(id) == null) return createErrorResponse(404, "Erro: Recurso inexistente");
 
             db.deleteMovie(id);
             return createSuccessResponse(200, "Sucesso: operação realizada com sucesso");
         } catch (SecurityException e) {
             return createErrorResponse(403, "Erro: sem permissão");
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
         } catch (Exception e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
-    private String formatGenres(JSONArray generosArray) {
-        if (generosArray == null) return "";
-        StringBuilder sb = new StringBuilder();
+    // Na última página o cursor vai como null
+    static Object nextCursor(DatabaseService.Page page) {
+        return page.proximoCursor != null ? page.proximoCursor : JSONObject.NULL;
+    }
+
+    static List<String> genreList(JSONArray generosArray) {
+        List<String> generos = new ArrayList<>();
+        if (generosArray == null) return generos;
         for (int i = 0; i < generosArray.length(); i++) {
-            if (i > 0) sb.append(",");
-            sb.append(generosArray.getString(i));
+            generos.add(generosArray.getString(i));
         }
-        return sb.toString();
+        return generos;
     }
 
     private JSONObject createErrorResponse(int status, String message) {
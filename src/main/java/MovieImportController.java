@@ -0,0 +1,172 @@
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Operação: IMPORTAR_FILMES (somente ADM)
+ *
+ * Cadastra muitos filmes de uma vez, em dois formatos:
+ * {"operacao":"IMPORTAR_FILMES","token":"...","filmes":[{...},{...}]}
+ * {"operacao":"IMPORTAR_FILMES","token":"...","filmes_ndjson":"{...}\n{...}\n"}
+ * Cada filme tem os mesmos campos e regras do CRIAR_FILME.
+ *
+ * A conversão e a validação rodam em paralelo; a inserção é feita pelo
+ * {@link DatabaseService#importMovies} com executeBatch em blocos. A resposta
+ * traz um resultado por filme ("resultados", na ordem recebida) e os números
+ * da importação ("estatisticas").
+ */
+public class MovieImportController {
+
+    // Pior caso de um filme válido na linha: título e diretor com 30, ano com 4
+    // e sinopse com 250 caracteres de até 3 bytes em UTF-8, mais chaves e gêneros
+    private static final int MAX_MOVIE_BYTES = 1_600;
+
+    // A importação inteira tem de caber numa linha do protocolo
+    public static final int MAX_MOVIES = Math.min(10_000, ClientRequest.MAX_LINE_BYTES / MAX_MOVIE_BYTES);
+    private static final int PARALLEL_THRESHOLD = 256; // Abaixo disso paralelizar custa mais do que ganha
+
+    private static final MovieImportController INSTANCE = new MovieImportController();
+
+    public static MovieImportController getInstance() {
+        return INSTANCE;
+    }
+
+    private final DatabaseService db;
+
+    private MovieImportController() {
+        this.db = DatabaseService.getInstance();
+    }
+
+    private void validateAdmin(UserPrincipal principal) throws SecurityException {
+        if (!principal.isAdmin()) {
+            throw new SecurityException("Acesso negado: Requer privilégios de ADM");
+        }
+    }
+
+    public JSONObject importMovies(UserPrincipal principal, JSONObject request) {
+        try {
+            validateAdmin(principal);
+            long inicio = System.nanoTime();
+
+            // Entradas ainda cruas: JSONObject (array) ou String (linha NDJSON)
+            List<Object> entradas = new ArrayList<>();
+            if (request.has("filmes")) {
+                JSONArray filmes = request.getJSONArray("filmes");
+                for (int i = 0; i < filmes.length(); i++) entradas.add(filmes.opt(i));
+            } else {
+                for (String linha : request.getString("filmes_ndjson").split("\n")) {
+                    if (!linha.isBlank()) entradas.add(linha);
+                }
+            }
+            if (entradas.isEmpty() || entradas.size() > MAX_MOVIES) {
+                return createErrorResponse(405, "Erro: Campos inválidos, verifique o tipo e quantidade de caracteres");
+            }
+
+            // 1. Conversão e validação em paralelo
+            IntStream indices = IntStream.range(0, entradas.size());
+            if (entradas.size() >= PARALLEL_THRESHOLD) indices = indices.parallel();
+            Object[] validados = indices.mapToObj(i -> validate(entradas.get(i))).toArray();
+            long fimValidacao = System.nanoTime();
+
+            // 2. Repetidos dentro do próprio pedido: só o primeiro vai para o banco
+            JSONObject[] resultados = new JSONObject[validados.length];
+            List<DatabaseService.MovieRow> rows = new ArrayList<>();
+            List<Integer> rowIndices = new ArrayList<>();
+            Set<String> vistos = new HashSet<>();
+            for (int i = 0; i < validados.length; i++) {
+                if (validados[i] instanceof JSONObject) {
+                    resultados[i] = (JSONObject) validados[i];
+                    continue;
+                }
+                DatabaseService.MovieRow row = (DatabaseService.MovieRow) validados[i];
+                if (!vistos.add(row.key())) {
+                    resultados[i] = createErrorResponse(409, "Erro: Recurso ja existe");
+                    continue;
+                }
+                rows.add(row);
+                rowIndices.add(i);
+            }
+
+            // 3. Inserção em blocos
+            int[] ids = rows.isEmpty() ? new int[0] : db.importMovies(rows);
+            long fim = System.nanoTime();
+
+            int cadastrados = 0;
+            for (int k = 0; k < ids.length; k++) {
+                JSONObject resultado;
+                if (ids[k] > 0) {
+                    resultado = createErrorResponse(201, "Sucesso: Recurso cadastrado").put("id", String.valueOf(ids[k]));
+                    cadastrados++;
+                } else if (ids[k] < 0) {
+                    resultado = createErrorResponse(409, "Erro: Recurso ja existe");
+                } else {
+                    resultado = createErrorResponse(500, "Erro: Falha interna do servidor");
+                }
+                resultados[rowIndices.get(k)] = resultado;
+            }
+
+            JSONArray lista = new JSONArray();
+            int invalidos = 0, duplicados = 0, falhas = 0;
+            for (int i = 0; i < resultados.length; i++) {
+                String status = resultados[i].getString("status");
+                if ("409".equals(status)) duplicados++;
+                else if ("500".equals(status)) falhas++;
+                else if (!"201".equals(status)) invalidos++;
+                lista.put(resultados[i].put("indice", String.valueOf(i)));
+            }
+
+            long totalMs = (fim - inicio) / 1_000_000;
+            JSONObject estatisticas = new JSONObject()
+                    .put("recebidos", String.valueOf(resultados.length))
+                    .put("cadastrados", String.valueOf(cadastrados))
+                    .put("duplicados", String.valueOf(duplicados))
+                    .put("invalidos", String.valueOf(invalidos))
+                    .put("falhas", String.valueOf(falhas))
+                    .put("tempo_validacao_ms", String.valueOf((fimValidacao - inicio) / 1_000_000))
+                    .put("tempo_insercao_ms", String.valueOf((fim - fimValidacao) / 1_000_000))
+                    .put("filmes_por_segundo", String.valueOf(resultados.length * 1000L / Math.max(1, totalMs)));
+
+            ServerLog.info("[IMPORTAÇÃO] " + estatisticas);
+            return new JSONObject()
+                    .put("status", "200")
+                    .put("mensagem", "Sucesso: operação realizada com sucesso")
+                    .put("resultados", lista)
+                    .put("estatisticas", estatisticas);
+        } catch (SecurityException e) {
+            return createErrorResponse(403, "Erro: sem permissão");
+        } catch (SQLException e) {
+            return createErrorResponse(500, "Erro: Falha interna do servidor");
+        }
+    }
+
+    // MovieRow se o filme for válido; senão a resposta de erro do item (mesmas do CRIAR_FILME)
+    private Object validate(Object entrada) {
+        try {
+            JSONObject movieData = entrada instanceof String ? new JSONObject((String) entrada) : (JSONObject) entrada;
+            String titulo = movieData.optString("titulo");
+            String diretor = movieData.optString("diretor");
+            String ano = movieData.optString("ano");
+            String sinopse = movieData.optString("sinopse");
+            JSONArray generosArray = movieData.optJSONArray("genero");
+
+            String error = ValidationService.validateMovie(titulo, diretor, ano, sinopse, generosArray);
+            if (error != null) {
+                return createErrorResponse(405, "Erro: Campos inválidos, verifique o tipo e quantidade de caracteres");
+            }
+            return new DatabaseService.MovieRow(titulo, diretor, ano, MovieController.genreList(generosArray), sinopse);
+        } catch (JSONException | ClassCastException e) {
+            return createErrorResponse(422, "Erro: Chaves faltantes ou invalidas");
+        }
+    }
+
+    private JSONObject createErrorResponse(int status, String message) {
+        return new JSONObject().put("status", String.valueOf(status)).put("mensagem", message);
+    }
+}
@@ -0,0 +1,462 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido em memória do catálogo, usado pelo BUSCAR_FILMES.
+ *
+ * Palavras de titulo e diretor (minúsculas, sem acento) ficam em mapas
+ * ordenados, o que permite busca por prefixo; anos têm um índice próprio e
+ * cada gênero um {@link BitSet} indexado pelo id do filme, de modo que filtros
+ * com vários gêneros são AND/OR de bitsets. Uma consulta percorre o menor
+ * conjunto de candidatos e testa os demais critérios, então o custo depende de
+ * quantos filmes casam, não do tamanho do catálogo.
+ *
+ * Também mantém o ranking do RANKING_FILMES: os filmes ordenados por nota
+ * (geral e por gênero) em árvores. Cada review escrita gera um evento e o
+ * filme só troca de posição na árvore, em O(log n).
+ *
+ * É montado por {@link #rebuild()} na partida do servidor e mantido pelos
+ * eventos do {@link DatabaseService} (escritas de filmes e de reviews), que
+ * chegam depois do commit: um LOTE atômico não enxerga aqui as próprias
+ * escritas ainda não confirmadas. Uma review só muda a nota do filme, então
+ * o evento dela relê só nota e quantidade pela chave e não espera os de
+ * outros filmes.
+ */
+public class MovieSearchIndex implements CatalogListener {
+
+    // Antes de INSTANCE: usado pelos campos do construtor.
+    // Maior nota primeiro; empate: mais avaliações, depois título e id
+    private static final Comparator<Entry> RANKING_ORDER = Comparator.comparingDouble((Entry e) -> -e.nota)
+            .thenComparingInt(e -> -e.qtdAvaliacoes).thenComparing(e -> e.titulo).thenComparingInt(e -> e.id);
+
+    private static final MovieSearchIndex INSTANCE = new MovieSearchIndex(DatabaseService.getInstance());
+
+    public static MovieSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    private final DatabaseService db;
+
+    // Estruturas protegidas por lock; as escritas passam antes por updateLock,
+    // para que duas leituras do banco não se atropelem: rebuild e filmes
+    // alterados pegam o lado exclusivo; notas, o compartilhado mais a faixa
+    // do filme, que ordena a releitura e a troca por filme
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock updateLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] ratingStripes = new ReentrantLock[64];
+    private final Map<Integer, Entry> movies = new HashMap<>();
+    private final TreeMap<String, Set<Integer>> titleWords = new TreeMap<>();
+    private final TreeMap<String, Set<Integer>> directorWords = new TreeMap<>();
+    private final Map<String, BitSet> genres = new HashMap<>();
+    private final TreeMap<Integer, Set<Integer>> years = new TreeMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(RANKING_ORDER);
+    private final Map<String, TreeSet<Entry>> rankingByGenre = new HashMap<>();
+    private volatile boolean built = false;
+
+    private MovieSearchIndex(DatabaseService db) {
+        this.db = db;
+        for (int i = 0; i < ratingStripes.length; i++) ratingStripes[i] = new ReentrantLock();
+        db.addCatalogListener(this);
+    }
+
+    /**
+     * Monta o índice do zero a partir da tabela filmes (partida do servidor ou
+     * após uma falha). Lê numa conexão própria: chamado de dentro de um LOTE
+     * atômico, não pode guardar linhas que a transação ainda pode desfazer.
+     */
+    public void rebuild() throws SQLException {
+        updateLock.writeLock().lock();
+        try {
+            List<JSONObject> filmes = new ArrayList<>();
+            try {
+                db.streamAllCommittedMovies(filmes::add);
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // A lista em memória não lança IOException
+            }
+
+            lock.writeLock().lock();
+            try {
+                movies.clear();
+                titleWords.clear();
+                directorWords.clear();
+                genres.clear();
+                years.clear();
+                ranking.clear();
+                rankingByGenre.clear();
+                for (JSONObject filme : filmes) add(new Entry(filme));
+                built = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            updateLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void movieChanged(int idFilme) {
+        moviesChanged(new int[] { idFilme });
+    }
+
+    // Uma importação inteira: uma consulta e uma troca só no índice
+    @Override
+    public void moviesChanged(int[] idsFilmes) {
+        updateLock.writeLock().lock();
+        try {
+            if (!built) return; // O próximo rebuild() lê o estado atual
+            List<JSONObject> filmes = db.findMoviesByIdsAsJson(idsFilmes);
+            lock.writeLock().lock();
+            try {
+                for (int idFilme : idsFilmes) remove(idFilme); // Os que sumiram não voltam
+                for (JSONObject filme : filmes) add(new Entry(filme));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (SQLException e) {
+            // Sem o estado atual os filmes ficariam desatualizados: a próxima busca refaz o índice
+            built = false;
+            ServerLog.error("Falha ao atualizar " + idsFilmes.length + " filme(s) no índice de busca: " + e.getMessage());
+        } finally {
+            updateLock.writeLock().unlock();
+        }
+    }
+
+    // Roda na thread de quem escreveu a review, logo depois do commit
+    @Override
+    public void ratingChanged(int idFilme) {
+        ReentrantLock stripe = ratingStripes[Math.floorMod(idFilme, ratingStripes.length)];
+        updateLock.readLock().lock();
+        stripe.lock();
+        try {
+            if (!built) return;
+            JSONObject rating = db.findMovieRatingAsJson(idFilme);
+            lock.writeLock().lock();
+            try {
+                Entry entry = movies.get(idFilme);
+                if (entry == null) return; // Removido (ou ainda não indexado): movieChanged/movieRemoved cuidam dele
+                remove(idFilme);
+                if (rating != null) add(entry.withRating(rating)); // null: excluído depois do commit da review
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (SQLException e) {
+            built = false;
+            ServerLog.error("Falha ao atualizar a nota do filme " + idFilme + " no índice de busca: " + e.getMessage());
+        } finally {
+            stripe.unlock();
+            updateLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void movieRemoved(int idFilme) {
+        updateLock.writeLock().lock();
+        try {
+            if (!built) return;
+            lock.writeLock().lock();
+            try {
+                remove(idFilme);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            updateLock.writeLock().unlock();
+        }
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return movies.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Executa a busca. Critérios nulos são ignorados; todos os informados
+     * precisam casar.
+     * @return os filmes encontrados na ordem pedida, com no máximo {@code limite} itens
+     */
+    public Result search(Query query) {
+        lock.readLock().lock();
+        try {
+            List<Set<Integer>> criteria = new ArrayList<>();
+            if (query.titulo != null) addWordCriteria(criteria, titleWords, query.titulo);
+            if (query.diretor != null) addWordCriteria(criteria, directorWords, query.diretor);
+            BitSet genreFilter = genreFilter(query);
+            int min = query.anoMin != null ? query.anoMin : Integer.MIN_VALUE;
+            int max = query.anoMax != null ? query.anoMax : Integer.MAX_VALUE;
+            if (min > max) return new Result(Collections.emptyList(), 0);
+            // Faixa de anos sozinha usa o índice; junto com outros critérios vira um filtro
+            if (criteria.isEmpty() && genreFilter == null && (query.anoMin != null || query.anoMax != null)) {
+                criteria.add(union(years.subMap(min, true, max, true).values()));
+            }
+
+            criteria.sort(Comparator.comparingInt(Set::size));
+            List<Entry> found = new ArrayList<>();
+            if (genreFilter != null && (criteria.isEmpty() || genreFilter.cardinality() < criteria.get(0).size())) {
+                // Os gêneros são o critério mais seletivo: percorre os bits
+                for (int id = genreFilter.nextSetBit(0); id >= 0; id = genreFilter.nextSetBit(id + 1)) {
+                    collect(found, movies.get(id), criteria, 0, null, min, max);
+                }
+            } else if (!criteria.isEmpty()) {
+                for (Integer id : criteria.get(0)) {
+                    collect(found, movies.get(id), criteria, 1, genreFilter, min, max);
+                }
+            } else {
+                for (Entry entry : movies.values()) {
+                    collect(found, entry, criteria, 0, null, min, max);
+                }
+            }
+
+            found.sort(query.order.comparator);
+            List<JSONObject> filmes = new ArrayList<>(Math.min(found.size(), query.limite));
+            for (int i = 0; i < found.size() && i < query.limite; i++) {
+                filmes.add(found.get(i).json);
+            }
+            return new Result(filmes, found.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void collect(List<Entry> found, Entry entry, List<Set<Integer>> criteria, int from,
+                                BitSet genreFilter, int min, int max) {
+        if (entry.ano < min || entry.ano > max) return;
+        if (genreFilter != null && !genreFilter.get(entry.id)) return;
+        for (int i = from; i < criteria.size(); i++) {
+            if (!criteria.get(i).contains(entry.id)) return;
+        }
+        found.add(entry);
+    }
+
+    // AND dos gêneros de "genero" com o OR dos de "genero_qualquer"; null se a consulta não filtra gênero
+    private BitSet genreFilter(Query query) {
+        BitSet filter = null;
+        for (String genero : query.generos) {
+            BitSet ids = genres.get(normalize(genero));
+            if (ids == null) return new BitSet();
+            if (filter == null) filter = (BitSet) ids.clone();
+            else filter.and(ids);
+        }
+        if (!query.generosQualquer.isEmpty()) {
+            BitSet any = new BitSet();
+            for (String genero : query.generosQualquer) {
+                BitSet ids = genres.get(normalize(genero));
+                if (ids != null) any.or(ids);
+            }
+            if (filter == null) filter = any;
+            else filter.and(any);
+        }
+        return filter;
+    }
+
+    /**
+     * Os {@code limite} filmes de maior nota, opcionalmente só de um gênero e
+     * só com pelo menos {@code minAvaliacoes} avaliações. Percorre a árvore a
+     * partir do topo e para ao completar o limite.
+     */
+    public List<JSONObject> topRated(String genero, int minAvaliacoes, int limite) {
+        lock.readLock().lock();
+        try {
+            Set<Entry> source = genero == null ? ranking : rankingByGenre.get(normalize(genero));
+            List<JSONObject> filmes = new ArrayList<>();
+            if (source == null) return filmes;
+            for (Entry entry : source) {
+                if (filmes.size() == limite) break;
+                if (entry.qtdAvaliacoes >= minAvaliacoes) filmes.add(entry.json);
+            }
+            return filmes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Cada palavra da consulta vira um critério: ids com alguma palavra que começa por ela
+    private static void addWordCriteria(List<Set<Integer>> criteria, TreeMap<String, Set<Integer>> index, String text) {
+        for (String word : words(text)) {
+            NavigableMap<String, Set<Integer>> matches = index.subMap(word, true, word + Character.MAX_VALUE, false);
+            criteria.add(matches.size() == 1 ? matches.firstEntry().getValue() : union(matches.values()));
+        }
+    }
+
+    private static Set<Integer> union(Collection<Set<Integer>> sets) {
+        Set<Integer> result = new HashSet<>();
+        for (Set<Integer> set : sets) result.addAll(set);
+        return result;
+    }
+
+    // Chamados com o writeLock
+
+    private void add(Entry entry) {
+        movies.put(entry.id, entry);
+        ranking.add(entry);
+        for (String genero : entry.genres) rankingByGenre.computeIfAbsent(genero, g -> new TreeSet<>(RANKING_ORDER)).add(entry);
+        for (String word : entry.titleWords) put(titleWords, word, entry.id);
+        for (String word : entry.directorWords) put(directorWords, word, entry.id);
+        for (String genero : entry.genres) genres.computeIfAbsent(genero, g -> new BitSet()).set(entry.id);
+        put(years, entry.ano, entry.id);
+    }
+
+    private void remove(int id) {
+        Entry entry = movies.remove(id);
+        if (entry == null) return;
+        ranking.remove(entry);
+        for (String genero : entry.genres) {
+            TreeSet<Entry> ranked = rankingByGenre.get(genero);
+            if (ranked != null && ranked.remove(entry) && ranked.isEmpty()) rankingByGenre.remove(genero);
+        }
+        for (String word : entry.titleWords) delete(titleWords, word, id);
+        for (String word : entry.directorWords) delete(directorWords, word, id);
+        for (String genero : entry.genres) {
+            BitSet ids = genres.get(genero);
+            if (ids == null) continue;
+            ids.clear(id);
+            if (ids.isEmpty()) genres.remove(genero);
+        }
+        delete(years, entry.ano, id);
+    }
+
+    private static <K> void put(Map<K, Set<Integer>> index, K key, int id) {
+        index.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+    }
+
+    private static <K> void delete(Map<K, Set<Integer>> index, K key, int id) {
+        Set<Integer> ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) index.remove(key);
+    }
+
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return ACCENTS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).trim();
+    }
+
+    static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        for (String word : SEPARATORS.split(normalize(text))) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+
+    // --- Consulta e resultado ---
+
+    public enum Order {
+        TITULO(Comparator.comparing((Entry e) -> e.titulo).thenComparingInt(e -> e.id)),
+        NOTA_DESC(Comparator.comparingDouble((Entry e) -> -e.nota).thenComparing(e -> e.titulo).thenComparingInt(e -> e.id)),
+        NOTA_ASC(Comparator.comparingDouble((Entry e) -> e.nota).thenComparing(e -> e.titulo).thenComparingInt(e -> e.id));
+
+        private final Comparator<Entry> comparator;
+
+        Order(Comparator<Entry> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    public static final class Query {
+        final String titulo;
+        final String diretor;
+        final List<String> generos;
+        final List<String> generosQualquer;
+        final Integer anoMin;
+        final Integer anoMax;
+        final Order order;
+        final int limite;
+
+        public Query(String titulo, String diretor, List<String> generos, List<String> generosQualquer,
+                     Integer anoMin, Integer anoMax, Order order, int limite) {
+            this.titulo = titulo;
+            this.diretor = diretor;
+            this.generos = generos;
+            this.generosQualquer = generosQualquer;
+            this.anoMin = anoMin;
+            this.anoMax = anoMax;
+            this.order = order;
+            this.limite = limite;
+        }
+    }
+
+    public static final class Result {
+        public final List<JSONObject> filmes;
+        public final int total; // Quantos casaram, antes do limite
+
+        Result(List<JSONObject> filmes, int total) {
+            this.filmes = filmes;
+            this.total = total;
+        }
+    }
+
+    // Filme indexado; json é o mesmo objeto devolvido nas buscas (não deve ser alterado)
+    private static final class Entry {
+        final int id;
+        final String titulo;
+        final int ano;
+        final double nota;
+        final int qtdAvaliacoes;
+        final Set<String> titleWords;
+        final Set<String> directorWords;
+        final Set<String> genres = new HashSet<>();
+        final JSONObject json;
+
+        Entry(JSONObject filme) {
+            this.json = filme;
+            this.id = Integer.parseInt(filme.getString("id"));
+            this.titulo = filme.getString("titulo");
+            this.ano = parseYear(filme.getString("ano"));
+            this.nota = Double.parseDouble(filme.getString("nota"));
+            this.qtdAvaliacoes = Integer.parseInt(filme.getString("qtd_avaliacoes"));
+            this.titleWords = words(titulo);
+            this.directorWords = words(filme.getString("diretor"));
+            JSONArray generos = filme.getJSONArray("genero");
+            for (int i = 0; i < generos.length(); i++) {
+                String genero = normalize(generos.getString(i));
+                if (!genero.isEmpty()) genres.add(genero); // [""] é filme sem gênero
+            }
+        }
+
+        // Cópia com a nota nova; o json antigo pode estar numa resposta em andamento
+        Entry withRating(JSONObject rating) {
+            JSONObject filme = new JSONObject(json, JSONObject.getNames(json));
+            filme.put("nota", rating.getString("nota"));
+            filme.put("qtd_avaliacoes", rating.getString("qtd_avaliacoes"));
+            return new Entry(filme);
+        }
+
+        private static int parseYear(String ano) {
+            try {
+                return Integer.parseInt(ano);
+            } catch (NumberFormatException e) {
+                return 0; // Filmes antigos cadastrados sem validação
+            }
+        }
+    }
+}
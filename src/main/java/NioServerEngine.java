@@ -0,0 +1,475 @@
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Motor de conexões baseado em {@link Selector}: poucas threads de event loop
+ * multiplexam todos os sockets, separam as requisições por '\n' (mesmo
+ * protocolo do {@link ClientHandler}) e entregam cada linha completa ao pool
+ * de workers, que executa o {@link RequestRouter}.
+ *
+ * A ordem e o paralelismo das requisições de uma conexão ficam a cargo do
+ * {@link RequestPipeline}, o mesmo do motor bloqueante.
+ */
+public class NioServerEngine {
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final int WRITE_CHUNK_SIZE = 16 * 1024;
+    private static final int MAX_WRITE_CHUNKS = 4;            // Blocos de resposta pendentes por conexão
+
+    private final int port;
+    private final ExecutorService workers;
+    private final VoteFlixServer server;
+    private final EventLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptThread;
+
+    public NioServerEngine(int port, int loopCount, ExecutorService workers, VoteFlixServer server) {
+        this.port = port;
+        this.workers = workers;
+        this.server = server;
+        this.loops = new EventLoop[Math.max(1, loopCount)];
+    }
+
+    public void start() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+            loops[i].thread.start();
+        }
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+
+        // O accept fica bloqueante numa thread própria; só os clientes usam o selector
+        acceptThread = new Thread(this::acceptLoop, "nio-accept");
+        acceptThread.start();
+        ServerLog.info("Servidor VoteFlix® (NIO, " + loops.length + " event loops) aguardando conexões na porta " + port + "...");
+    }
+
+    public boolean isRunning() {
+        return serverChannel != null && serverChannel.isOpen();
+    }
+
+    public void stop() throws InterruptedException {
+        try {
+            if (serverChannel != null) serverChannel.close(); // Interrompe o accept()
+        } catch (IOException e) {
+            ServerLog.error("Erro ao fechar ServerSocketChannel: " + e.getMessage());
+        }
+        if (acceptThread != null) acceptThread.join(1000);
+
+        for (EventLoop loop : loops) {
+            if (loop != null) loop.shutdown();
+        }
+        for (EventLoop loop : loops) {
+            if (loop != null) loop.thread.join(1000);
+        }
+    }
+
+    private void acceptLoop() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                if (!server.tryOpenConnection()) {
+                    refuse(channel);
+                    continue;
+                }
+                try {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                } catch (IOException e) {
+                    server.connectionClosed();
+                    channel.close();
+                    throw e;
+                }
+
+                Socket socket = channel.socket();
+                ServerLog.info("Novo cliente conectado: " + socket.getInetAddress());
+
+                EventLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                NioConnection connection = new NioConnection(channel, loop);
+                loop.execute(() -> loop.register(connection));
+            } catch (AsynchronousCloseException e) {
+                break; // stop() fechou o canal
+            } catch (IOException e) {
+                if (serverChannel.isOpen()) {
+                    ServerLog.error("Erro no ServerSocketChannel: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Ainda bloqueante: a linha de "ocupado" cabe no buffer do socket
+    private void refuse(SocketChannel channel) {
+        ServerLog.info("[CONEXÕES] Limite atingido, recusando " + channel.socket().getInetAddress());
+        try (channel) {
+            channel.write(ByteBuffer.wrap((VoteFlixServer.BUSY_RESPONSE + "\n").getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            // O cliente já foi embora; nada a fazer
+        }
+    }
+
+    /**
+     * Thread com um Selector próprio. Todo o estado de leitura e escrita das
+     * conexões registradas nela só é tocado por esta thread; os workers
+     * devolvem as respostas através de {@link #execute(Runnable)}.
+     */
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private volatile boolean running = true;
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-loop-" + index);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void register(NioConnection connection) {
+            try {
+                connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+                server.addActiveClient(connection.clientId);
+            } catch (ClosedChannelException e) {
+                connection.close();
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        if (!key.isValid()) {
+                            connection.close();
+                            continue;
+                        }
+                        if (key.isReadable()) connection.onReadable(readBuffer);
+                        if (key.isValid() && key.isWritable()) connection.onWritable();
+                    }
+                }
+            } catch (IOException e) {
+                ServerLog.error("Erro no event loop " + thread.getName() + ": " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((NioConnection) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Estado de uma conexão NIO. Leitura e escrita no socket rodam no event
+     * loop; o {@link RequestPipeline} executa as requisições nos workers, que
+     * devolvem os bytes das respostas ao event loop.
+     */
+    private final class NioConnection implements ClientConnection, RequestPipeline.Transport {
+
+        private final SocketChannel channel;
+        private final EventLoop loop;
+        private final String clientId;
+        private final RequestPipeline pipeline;
+
+        private SelectionKey key;
+        private byte[] partialLine = new byte[256];
+        private int partialLength = 0;
+        private final Queue<ByteBuffer> pendingWrites = new ArrayDeque<>();
+        private boolean readPaused = false;
+        private boolean inputStopped = false; // Fim da entrada ou linha grande demais: não lê mais
+        private boolean closeAfterWrite = false;
+        private volatile boolean closed = false; // Lido também pelo worker durante o streaming
+
+        // Um crédito por buffer entregue ao event loop e ainda não escrito no socket
+        private final Semaphore writeCredits = new Semaphore(MAX_WRITE_CHUNKS);
+
+        // Escrito pelo worker, lido pelo event loop ao fechar
+        private volatile Integer loggedUserId = null;
+
+        NioConnection(SocketChannel channel, EventLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+            Socket socket = channel.socket();
+            this.clientId = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+            this.pipeline = new RequestPipeline(clientId, server.getRouter(),
+                    new ClientSession(socket.getInetAddress().getHostAddress()), workers, this,
+                    server.getConfig().getPipelineLimit());
+        }
+
+        @Override
+        public void forceClose() {
+            loop.execute(this::close);
+        }
+
+        void onReadable(ByteBuffer buffer) {
+            int read;
+            try {
+                buffer.clear();
+                read = channel.read(buffer);
+            } catch (IOException e) {
+                if (!closed) ServerLog.error("Erro de I/O (ou Kick) com " + clientId + ": " + e.getMessage());
+                close();
+                return;
+            }
+            if (read < 0) {
+                // Fim da entrada: para de ler e fecha depois das respostas pendentes.
+                // Uma última linha sem '\n' vale, como no motor bloqueante
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                inputStopped = true;
+                if (partialLength > 0) offerPartialLine();
+                pipeline.finishInput();
+                return;
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    offerPartialLine();
+                } else {
+                    if (partialLength == ClientRequest.MAX_LINE_BYTES) {
+                        // Para de ler de vez: o 413 sai depois das anteriores e a conexão fecha
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                        inputStopped = true;
+                        partialLine = new byte[256];
+                        partialLength = 0;
+                        pipeline.offerOversized();
+                        return;
+                    }
+                    if (partialLength == partialLine.length) {
+                        partialLine = Arrays.copyOf(partialLine, Math.min(partialLine.length * 2, ClientRequest.MAX_LINE_BYTES));
+                    }
+                    partialLine[partialLength++] = b;
+                }
+            }
+
+            if (readPaused) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ); // Backpressure
+            }
+        }
+
+        private void offerPartialLine() {
+            int length = partialLength;
+            if (length > 0 && partialLine[length - 1] == '\r') length--;
+            if (!pipeline.offer(new String(partialLine, 0, length, StandardCharsets.UTF_8))) {
+                readPaused = true;
+            }
+            partialLength = 0;
+            if (partialLine.length > 64 * 1024) partialLine = new byte[256]; // Não segura o buffer de uma importação grande
+        }
+
+        // --- RequestPipeline.Transport (workers, uma resposta por vez) ---
+
+        @Override
+        public void write(String response) throws IOException {
+            send(ByteBuffer.wrap((response + "\n").getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void writeInline(String response) throws IOException {
+            if (Thread.currentThread() == loop.thread) {
+                // No event loop não dá para esperar crédito de escrita: é ele quem os devolve.
+                // Sem crédito o cliente não está lendo as respostas, e a conexão é encerrada
+                if (closed || !writeCredits.tryAcquire()) throw new IOException("saída da conexão saturada");
+                writeToChannel(ByteBuffer.wrap((response + "\n").getBytes(StandardCharsets.UTF_8)));
+            } else {
+                write(response);
+            }
+        }
+
+        @Override
+        public void stream(JSONObject response) throws IOException {
+            // Listagens grandes vão do ResultSet para o socket em blocos
+            Writer out = new OutputStreamWriter(new ChunkedOutput(), StandardCharsets.UTF_8);
+            ResponseWriter.write(response, out);
+            out.write('\n');
+            out.flush();
+        }
+
+        @Override
+        public void loggedIn(UserPrincipal principal) {
+            if (loggedUserId == null) {
+                loggedUserId = principal.getId();
+                server.registerUser(principal.getId(), this);
+            }
+        }
+
+        @Override
+        public void closeAfterResponse() {
+            // As escritas já entregues ao event loop rodam antes desta tarefa
+            loop.execute(() -> {
+                if (closed) return;
+                closeAfterWrite = true;
+                if (pendingWrites.isEmpty()) close();
+            });
+        }
+
+        @Override
+        public void abort() {
+            forceClose();
+        }
+
+        @Override
+        public void resumeReading() {
+            loop.execute(() -> {
+                readPaused = false;
+                if (!closed && !inputStopped && key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            });
+        }
+
+        // Roda no worker: espera um crédito de escrita e entrega o buffer ao event loop
+        private void send(ByteBuffer out) throws IOException {
+            try {
+                writeCredits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrompido aguardando o socket");
+            }
+            if (closed) throw new IOException("conexão encerrada");
+            loop.execute(() -> writeToChannel(out));
+        }
+
+        private void writeToChannel(ByteBuffer out) {
+            if (closed) return;
+            if (pendingWrites.isEmpty()) {
+                try {
+                    channel.write(out);
+                } catch (IOException e) {
+                    close();
+                    return;
+                }
+            }
+            if (out.hasRemaining()) {
+                pendingWrites.add(out);
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            } else {
+                writeCredits.release();
+                if (closeAfterWrite) close();
+            }
+        }
+
+        void onWritable() {
+            try {
+                ByteBuffer out;
+                while ((out = pendingWrites.peek()) != null) {
+                    channel.write(out);
+                    if (out.hasRemaining()) return; // Buffer do socket cheio, espera o próximo OP_WRITE
+                    pendingWrites.poll();
+                    writeCredits.release();
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            if (closeAfterWrite) close();
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            pipeline.close();
+            writeCredits.release(MAX_WRITE_CHUNKS); // Libera um worker parado em send()
+            if (key != null) key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                ServerLog.error("Erro ao fechar socket: " + e.getMessage());
+            }
+
+            Integer userId = loggedUserId;
+            if (userId != null) {
+                server.unregisterUser(userId);
+            }
+            server.removeActiveClient(clientId);
+            server.connectionClosed();
+            ServerLog.info("Conexão com " + clientId + " encerrada.");
+        }
+
+        /**
+         * Saída do worker para respostas em streaming: junta os bytes em blocos
+         * de WRITE_CHUNK_SIZE e manda cada bloco por {@link #send}. Com no
+         * máximo MAX_WRITE_CHUNKS blocos pendentes, um cliente lento faz o
+         * worker esperar em vez de acumular a resposta inteira em memória.
+         */
+        private final class ChunkedOutput extends OutputStream {
+
+            private byte[] chunk = new byte[WRITE_CHUNK_SIZE];
+            private int count = 0;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (count == chunk.length) flush();
+                chunk[count++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (count == chunk.length) flush();
+                    int n = Math.min(len, chunk.length - count);
+                    System.arraycopy(b, off, chunk, count, n);
+                    count += n;
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (count == 0) return;
+                send(ByteBuffer.wrap(chunk, 0, count));
+                chunk = new byte[WRITE_CHUNK_SIZE]; // O bloco anterior agora pertence ao event loop
+                count = 0;
+            }
+        }
+    }
+}
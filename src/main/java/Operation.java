@@ -0,0 +1,93 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Operações do protocolo ("operacao"), resolvidas uma vez por requisição
+ * em {@link ClientRequest}. Cada uma carrega o que antes era decidido por
+ * comparações de string espalhadas: custo para o {@link AdmissionControl},
+ * se é barreira no {@link RequestPipeline}, se encerra a conexão quando dá
+ * certo e se pode aparecer dentro de um LOTE.
+ */
+public enum Operation {
+
+    // Usuário/Auth
+    LOGIN(AdmissionControl.Cost.PESADA, Flags.BARRIER),
+    CRIAR_USUARIO(AdmissionControl.Cost.PESADA, 0),
+    LOGOUT(AdmissionControl.Cost.LIVRE, Flags.BARRIER | Flags.CLOSES_CONNECTION),
+    LISTAR_PROPRIO_USUARIO(AdmissionControl.Cost.LEITURA, 0),
+    EDITAR_PROPRIO_USUARIO(AdmissionControl.Cost.PESADA, 0),
+    EXCLUIR_PROPRIO_USUARIO(AdmissionControl.Cost.PESADA, Flags.BARRIER | Flags.CLOSES_CONNECTION),
+
+    // Admin Usuário
+    LISTAR_USUARIOS(AdmissionControl.Cost.PESADA, 0),
+    ADMIN_EDITAR_USUARIO(AdmissionControl.Cost.PESADA, 0),
+    ADMIN_EXCLUIR_USUARIO(AdmissionControl.Cost.PESADA, 0),
+
+    // Filmes
+    CRIAR_FILME(AdmissionControl.Cost.PESADA, 0),
+    EDITAR_FILME(AdmissionControl.Cost.PESADA, 0),
+    EXCLUIR_FILME(AdmissionControl.Cost.PESADA, 0),
+    LISTAR_FILMES(AdmissionControl.Cost.PESADA, 0),
+    BUSCAR_FILME_ID(AdmissionControl.Cost.LEITURA, 0),
+    BUSCAR_FILMES(AdmissionControl.Cost.LEITURA, 0),
+    RANKING_FILMES(AdmissionControl.Cost.LEITURA, 0),
+    IMPORTAR_FILMES(AdmissionControl.Cost.PESADA, Flags.NOT_IN_BATCH), // Controla as próprias transações
+
+    // Reviews
+    CRIAR_REVIEW(AdmissionControl.Cost.PESADA, 0),
+    LISTAR_REVIEWS_USUARIO(AdmissionControl.Cost.PESADA, 0),
+    EDITAR_REVIEW(AdmissionControl.Cost.PESADA, 0),
+    EXCLUIR_REVIEW(AdmissionControl.Cost.PESADA, 0),
+
+    // Lote e monitoramento
+    LOTE(AdmissionControl.Cost.PESADA, Flags.NOT_IN_BATCH),
+    METRICAS(AdmissionControl.Cost.LIVRE, 0); // Precisa responder justamente na sobrecarga
+
+    private static final Map<String, Operation> BY_NAME = new HashMap<>();
+
+    static {
+        for (Operation operation : values()) BY_NAME.put(operation.name(), operation);
+    }
+
+    private final AdmissionControl.Cost cost;
+    private final boolean barrier;
+    private final boolean closesConnection;
+    private final boolean allowedInBatch;
+
+    Operation(AdmissionControl.Cost cost, int flags) {
+        this.cost = cost;
+        this.barrier = (flags & Flags.BARRIER) != 0;
+        this.closesConnection = (flags & Flags.CLOSES_CONNECTION) != 0;
+        // O que mexe na sessão/conexão também fica de fora do LOTE
+        this.allowedInBatch = (flags & (Flags.NOT_IN_BATCH | Flags.BARRIER)) == 0;
+    }
+
+    /** @return a operação com esse nome, ou null se não existir. */
+    public static Operation fromName(String name) {
+        return name == null ? null : BY_NAME.get(name);
+    }
+
+    public AdmissionControl.Cost getCost() {
+        return cost;
+    }
+
+    /** Espera as anteriores da conexão terminarem, mesmo com "id_requisicao". */
+    public boolean isBarrier() {
+        return barrier;
+    }
+
+    /** Com resposta 2xx a conexão é encerrada depois dela. */
+    public boolean closesConnection() {
+        return closesConnection;
+    }
+
+    public boolean isAllowedInBatch() {
+        return allowedInBatch;
+    }
+
+    private static final class Flags {
+        static final int BARRIER = 1;
+        static final int CLOSES_CONNECTION = 2;
+        static final int NOT_IN_BATCH = 4;
+    }
+}
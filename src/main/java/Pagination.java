@@ -0,0 +1,88 @@
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Parâmetros opcionais de paginação por keyset ("limite" e "cursor").
+ *
+ * O cursor de filmes codifica o par (titulo, id) do último item da página; o
+ * de reviews é o id da última review (a listagem é por id DESC). Assim a
+ * próxima página é uma busca no índice, sem OFFSET.
+ */
+public class Pagination {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private final int limite;
+    private final String cursor;
+
+    private Pagination(int limite, String cursor) {
+        this.limite = limite;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Lê "limite" e "cursor" da requisição.
+     * @return null se a requisição não pede paginação (comportamento antigo).
+     * @throws IllegalArgumentException se algum parâmetro for inválido.
+     */
+    public static Pagination fromRequest(JSONObject request) {
+        if (!request.has("limite") && !request.has("cursor")) return null;
+
+        int limite = DEFAULT_LIMIT;
+        if (request.has("limite")) {
+            try {
+                limite = Integer.parseInt(request.get("limite").toString());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("limite inválido");
+            }
+            if (limite < 1 || limite > MAX_LIMIT) throw new IllegalArgumentException("limite fora do intervalo");
+        }
+
+        String cursor = request.optString("cursor", null);
+        if (cursor != null && cursor.isEmpty()) cursor = null;
+        return new Pagination(limite, cursor);
+    }
+
+    public int getLimite() { return limite; }
+    public String getCursor() { return cursor; }
+
+    // --- Cursor de filmes: (titulo, id) ---
+
+    public static String encodeMovieCursor(String titulo, int id) {
+        String raw = id + ":" + titulo;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MovieCursor decodeMovieCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new MovieCursor(raw.substring(sep + 1), Integer.parseInt(raw.substring(0, sep)));
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("cursor inválido");
+        }
+    }
+
+    // --- Cursor de reviews: id ---
+
+    public static int decodeReviewCursor(String cursor) {
+        try {
+            return Integer.parseInt(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("cursor inválido");
+        }
+    }
+
+    public static class MovieCursor {
+        public final String titulo;
+        public final int id;
+
+        MovieCursor(String titulo, int id) {
+            this.titulo = titulo;
+            this.id = id;
+        }
+    }
+}
@@ -4,27 +4,34 @@ import java.security.NoSuchAlgorithmException;
 
 public class PasswordService {
 
-    // Usa SHA-256 para hashing (melhor que MD5, mais simples que BCrypt)
-    public static String hashPassword(String password) {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // MessageDigest não é thread-safe: uma instância reaproveitada por thread
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-            // Converte bytes para hexadecimal
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             // Em um app real, isso não deveria acontecer.
             throw new RuntimeException("Erro: Algoritmo SHA-256 não encontrado.", e);
         }
+    });
+
+    // Usa SHA-256 para hashing (melhor que MD5, mais simples que BCrypt)
+    public static String hashPassword(String password) {
+        MessageDigest digest = SHA_256.get();
+        byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8)); // digest() já reinicia a instância
+
+        // Converte bytes para hexadecimal (minúsculo, 2 caracteres por byte)
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(hex);
     }
 
     public static boolean checkPassword(String plainPassword, String hashedPassword) {
         String hashOfPlain = hashPassword(plainPassword);
         return hashOfPlain.equals(hashedPassword);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,324 @@
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fila de requisições de uma conexão, usada pelos dois motores
+ * ({@link ClientHandler} e {@link NioServerEngine}).
+ *
+ * Extensão opcional do protocolo: uma requisição com "id_requisicao" pode ser
+ * enviada sem esperar as anteriores. Requisições marcadas rodam em paralelo
+ * (até o limite por conexão) e cada resposta sai assim que fica pronta,
+ * levando o mesmo "id_requisicao" de volta.
+ *
+ * Requisições sem "id_requisicao", e LOGIN/LOGOUT/EXCLUIR_PROPRIO_USUARIO
+ * mesmo marcadas, são barreiras: esperam todas as anteriores terminarem e
+ * nenhuma posterior começa antes delas. Um cliente que não usa a extensão tem
+ * exatamente o comportamento antigo, uma requisição por vez e na ordem.
+ *
+ * As respostas saem uma de cada vez (writeLock). Uma resposta em streaming
+ * (listagem completa do catálogo) segura o writeLock enquanto a consulta é
+ * lida, então as respostas marcadas que ficarem prontas nesse meio tempo
+ * esperam por ela. É a troca por não materializar a listagem inteira na
+ * memória; as respostas limitadas não usam streaming.
+ */
+public class RequestPipeline {
+
+    public static final String TAG_KEY = "id_requisicao";
+    private static final int MAX_QUEUED = 64; // Acima disso a conexão para de ser lida
+
+    // Requisições entregues aos workers e ainda não terminadas, somando todas as conexões
+    private static final AtomicInteger BACKLOG = new AtomicInteger();
+
+    /** Lado de escrita da conexão; as escritas nunca rodam em paralelo. */
+    public interface Transport {
+        /** Escreve uma resposta já serializada seguida de '\n'. */
+        void write(String response) throws IOException;
+
+        /** Escreve uma resposta em streaming ({@link ResponseWriter}) seguida de '\n'. */
+        void stream(JSONObject response) throws IOException;
+
+        /** LOGIN bem-sucedido nesta conexão. */
+        void loggedIn(UserPrincipal principal);
+
+        /** Fecha a conexão depois que o que já foi escrito sair. */
+        void closeAfterResponse();
+
+        /** Fecha a conexão imediatamente (falha de escrita). */
+        void abort();
+
+        /**
+         * Escreve uma resposta curta de quem despacha as requisições (o leitor
+         * da conexão ou um worker), sem nunca esperar pelo lado de escrita.
+         */
+        default void writeInline(String response) throws IOException {
+            write(response);
+        }
+
+        /** A fila voltou a ter espaço depois de {@link #offer} devolver false. */
+        default void resumeReading() {
+        }
+    }
+
+    private final String clientId;
+    private final RequestRouter router;
+    private final ClientSession session;
+    private final Executor workers;
+    private final Transport transport;
+    private final int limit;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Respostas 503 do descarte por sobrecarga, escritas por quem tiver o writeLock
+    private final ConcurrentLinkedQueue<String> rejected = new ConcurrentLinkedQueue<>();
+
+    // Protegidos por this
+    private final ArrayDeque<ClientRequest> queue = new ArrayDeque<>();
+    private int inFlight = 0;
+    private boolean barrierRunning = false;
+    private boolean inputFinished = false;
+    private boolean closing = false;
+    private boolean closed = false;
+
+    public RequestPipeline(String clientId, RequestRouter router, ClientSession session,
+                           Executor workers, Transport transport, int limit) {
+        this.clientId = clientId;
+        this.router = router;
+        this.session = session;
+        this.workers = workers;
+        this.transport = transport;
+        this.limit = Math.max(1, limit);
+    }
+
+    /**
+     * Enfileira uma linha recebida. Nunca bloqueia.
+     * @return false se a fila encheu e a conexão deve parar de ser lida.
+     */
+    public synchronized boolean offer(String line) {
+        return enqueue(ClientRequest.parse(line)); // Única conversão da linha; o router usa o mesmo envelope
+    }
+
+    /**
+     * A linha passou de {@link ClientRequest#MAX_LINE_BYTES} e o leitor parou
+     * de ler: depois das anteriores sai um 413 e a conexão é encerrada.
+     */
+    public synchronized void offerOversized() {
+        enqueue(ClientRequest.oversized());
+    }
+
+    private boolean enqueue(ClientRequest request) {
+        if (closing || closed) return true;
+        queue.add(request);
+        drain();
+        return queue.size() < MAX_QUEUED;
+    }
+
+    /** Bloqueia (motor bloqueante) enquanto a fila estiver cheia. */
+    public synchronized void awaitRoom() throws InterruptedException {
+        while (!closed && queue.size() >= MAX_QUEUED) wait();
+    }
+
+    /** Bloqueia (motor bloqueante) até todas as requisições recebidas terem sido respondidas. */
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (!closed && !closing && (inFlight > 0 || !queue.isEmpty())) wait();
+    }
+
+    /** Fim da entrada (motor NIO): fecha a conexão quando a última resposta sair. */
+    public synchronized void finishInput() {
+        inputFinished = true;
+        if (inFlight == 0 && queue.isEmpty() && !closing) {
+            closing = true;
+            transport.closeAfterResponse();
+        }
+    }
+
+    /** A conexão foi encerrada: descarta o que não começou. */
+    public synchronized void close() {
+        closed = true;
+        queue.clear();
+        notifyAll();
+    }
+
+    /** Quantas requisições esperam por um worker ou rodam nele agora (todas as conexões). */
+    public static int backlog() {
+        return BACKLOG.get();
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    // Chamado com o lock: inicia tudo o que as regras de ordem permitem
+    private void drain() {
+        boolean wasFull = queue.size() >= MAX_QUEUED;
+        ClientRequest next;
+        while (!closing && !closed && !barrierRunning && (next = queue.peek()) != null) {
+            boolean barrier = isBarrier(next);
+            if (barrier ? inFlight > 0 : inFlight >= limit) break;
+            queue.poll();
+
+            // Sobrecarga: responde 503 já, sem ocupar a fila dos workers nem um worker
+            JSONObject shed = next.isValidJson() ? AdmissionControl.getInstance().shed(next.getOperation()) : null;
+            if (shed != null) {
+                reject(next, shed);
+                if (closed) return;
+                notifyAll(); // awaitIdle pode estar esperando justamente esta
+                continue;
+            }
+
+            if (barrier) barrierRunning = true;
+            inFlight++;
+            ClientRequest request = next;
+            BACKLOG.incrementAndGet();
+            try {
+                workers.execute(() -> process(request));
+            } catch (RejectedExecutionException e) {
+                // Fila dos workers cheia (ou servidor parando): a conexão é encerrada
+                ServerLog.error("[EXECUTOR] Requisição de " + clientId + " recusada: " + e.getMessage());
+                BACKLOG.decrementAndGet();
+                closed = true;
+                queue.clear();
+                transport.abort();
+                return;
+            }
+        }
+        if (wasFull && queue.size() < MAX_QUEUED) {
+            notifyAll();
+            transport.resumeReading();
+        }
+    }
+
+    /**
+     * Chamado com o lock, por drain(). Quem despacha não pode esperar pelo
+     * writeLock (no NIO é o event loop, que um worker escrevendo pode estar
+     * esperando), então a resposta entra numa fila: sai já se ninguém estiver
+     * escrevendo, ou logo depois da resposta em andamento. Uma barreira
+     * recusada nem chegou a começar, então a ordem se mantém.
+     */
+    private void reject(ClientRequest request, JSONObject response) {
+        if (request.getTag() != null) response.put(TAG_KEY, request.getTag());
+        MetricsRegistry.getInstance().record(request.getMetricName(), "503", 0);
+        rejected.add(response.toString());
+        flushRejected();
+    }
+
+    private void flushRejected() {
+        while (!rejected.isEmpty() && writeLock.tryLock()) {
+            try {
+                String response;
+                while ((response = rejected.poll()) != null) {
+                    ServerLog.info("[SVR -> " + clientId + "] " + response);
+                    transport.writeInline(response);
+                }
+            } catch (IOException e) {
+                if (!isClosed()) ServerLog.error("Erro de I/O (ou Kick) com " + clientId + ": " + e.getMessage());
+                rejected.clear();
+                close();
+                transport.abort();
+                return;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    // Roda no worker
+    private void process(ClientRequest request) {
+        try {
+            respond(request);
+        } catch (RuntimeException e) {
+            // Falha fora do router (sessão, serialização, transporte): sem
+            // complete() a conexão ficaria esperando para sempre, então é encerrada
+            ServerLog.error("Erro interno ao responder " + clientId + ": " + e);
+            close();
+            transport.abort();
+        } finally {
+            BACKLOG.decrementAndGet();
+        }
+    }
+
+    private void respond(ClientRequest request) {
+        ServerLog.info("[" + clientId + " -> SVR] " + request.getLine());
+        long start = System.nanoTime();
+
+        JSONObject response = router.handleRequest(request, session); // JSON inválido: o router responde o erro
+        if (request.getTag() != null) response.put(TAG_KEY, request.getTag());
+
+        if (request.getOperation() == Operation.LOGIN) {
+            UserPrincipal principal = session.getPrincipal();
+            if (principal != null) transport.loggedIn(principal);
+        }
+        boolean closeRequested = request.isOversized() || isSuccessfulCloseRequest(request.getOperation(), response);
+
+        try {
+            writeLock.lock();
+            try {
+                if (ResponseWriter.isStreaming(response)) {
+                    transport.stream(response);
+                    MetricsRegistry.getInstance().record(request.getMetricName(), response.optString("status", "500"),
+                            System.nanoTime() - start);
+                    ServerLog.info("[SVR -> " + clientId + "] " + ResponseWriter.summary(response));
+                } else {
+                    String responseString = response.toString();
+                    ServerLog.info("[SVR -> " + clientId + "] " + responseString);
+                    transport.write(responseString);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            flushRejected(); // 503 que chegaram durante esta escrita
+        } catch (InterruptedIOException e) {
+            close(); // Servidor parando
+            transport.abort();
+            return;
+        } catch (IOException e) {
+            // Resposta pode ter saído pela metade: a conexão não tem como continuar
+            if (!isClosed()) ServerLog.error("Erro de I/O (ou Kick) com " + clientId + ": " + e.getMessage());
+            close();
+            transport.abort();
+            return;
+        }
+
+        if (request.isOversized()) {
+            ServerLog.error("Requisição acima de " + ClientRequest.MAX_LINE_BYTES + " bytes de " + clientId + ", encerrando conexão.");
+        } else if (closeRequested) {
+            ServerLog.info("Cliente " + clientId + " saiu voluntariamente.");
+        }
+        complete(request, closeRequested);
+    }
+
+    private synchronized void complete(ClientRequest request, boolean closeRequested) {
+        inFlight--;
+        if (isBarrier(request)) barrierRunning = false;
+        notifyAll();
+
+        if (closeRequested) {
+            // LOGOUT/EXCLUIR_PROPRIO_USUARIO e a linha grande demais são barreiras: nada mais está rodando
+            closing = true;
+            queue.clear();
+            transport.closeAfterResponse();
+            return;
+        }
+        drain();
+        if (inputFinished && inFlight == 0 && queue.isEmpty() && !closing) {
+            closing = true;
+            transport.closeAfterResponse();
+        }
+    }
+
+    static boolean isSuccessfulCloseRequest(Operation operation, JSONObject jsonResponse) {
+        if (operation == null || !operation.closesConnection()) return false;
+        return jsonResponse.optString("status", "500").startsWith("2");
+    }
+
+    // JSON inválido e requisições sem "id_requisicao" também esperam as anteriores
+    private static boolean isBarrier(ClientRequest request) {
+        return request.getTag() == null || (request.getOperation() != null && request.getOperation().isBarrier());
+    }
+}
@@ -1,63 +1,168 @@
+import io.jsonwebtoken.JwtException;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Despacha cada {@link ClientRequest} para o controller da operação. Há um
+ * router por servidor, compartilhado por todas as conexões dos dois motores;
+ * o estado de cada conexão vem na {@link ClientSession}.
+ */
 public class RequestRouter {
 
-    private final UserController userController;
-    private final MovieController movieController;
-    private final ReviewController reviewController;
+    /** Trata uma operação já admitida. */
+    @FunctionalInterface
+    private interface Handler {
+        JSONObject handle(ClientRequest request, ClientSession session) throws Exception;
+    }
 
-    // Construtor agora recebe ServerGui
-    public RequestRouter(ServerGui gui) {
-        this.userController = new UserController(gui); // Passa a GUI para o UserController
-        this.movieController = new MovieController();
-        this.reviewController = new ReviewController();
+    /** Operação que exige token válido: recebe o principal já verificado. */
+    @FunctionalInterface
+    private interface AuthenticatedHandler {
+        JSONObject handle(UserPrincipal principal, JSONObject request) throws Exception;
     }
 
-    // Sobrecarga para manter compatibilidade caso seja instanciado sem GUI (testes), embora não usado aqui
+    private final VoteFlixServer server; // Pode ser null (router sem servidor, ex.: benchmarks)
+    private final Map<Operation, Handler> handlers = new EnumMap<>(Operation.class);
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final AdmissionControl admission = AdmissionControl.getInstance();
+
+    // Construtor recebe o núcleo do servidor (usado para derrubar sessões e nas métricas de carga)
+    public RequestRouter(VoteFlixServer server) {
+        this.server = server;
+
+        UserController users = UserController.getInstance();
+        MovieController movies = MovieController.getInstance();
+        ReviewController reviews = ReviewController.getInstance();
+
+        // Usuário/Auth
+        handlers.put(Operation.LOGIN, (request, session) -> {
+            JSONObject response = users.login(request.getJson());
+            if ("200".equals(response.optString("status"))) {
+                session.bind(response.getString("token")); // Próximas requisições do socket usam a sessão
+            }
+            return response;
+        });
+        handlers.put(Operation.CRIAR_USUARIO, (request, session) -> users.register(request.getJson()));
+        handlers.put(Operation.LOGOUT, (request, session) -> {
+            JSONObject response = users.logout(session.authenticate(request.getToken()));
+            session.logout(request.getToken());
+            return response;
+        });
+        authenticated(Operation.LISTAR_PROPRIO_USUARIO, (principal, json) -> users.viewProfile(principal));
+        authenticated(Operation.EDITAR_PROPRIO_USUARIO, users::updatePassword);
+        authenticated(Operation.EXCLUIR_PROPRIO_USUARIO, (principal, json) -> users.deleteAccount(principal));
+
+        // Admin Usuário
+        authenticated(Operation.LISTAR_USUARIOS, (principal, json) -> users.listAllUsers(principal));
+        authenticated(Operation.ADMIN_EDITAR_USUARIO, users::updateOtherUserPassword);
+        authenticated(Operation.ADMIN_EXCLUIR_USUARIO, (principal, json) -> users.deleteOtherUser(principal, json, server));
+
+        // Filmes
+        authenticated(Operation.CRIAR_FILME, movies::createMovie);
+        authenticated(Operation.EDITAR_FILME, movies::updateMovie);
+        authenticated(Operation.EXCLUIR_FILME, movies::deleteMovie);
+        authenticated(Operation.LISTAR_FILMES, movies::listAllMovies);
+        authenticated(Operation.BUSCAR_FILME_ID, movies::getMovieById);
+        authenticated(Operation.BUSCAR_FILMES, movies::searchMovies);
+        authenticated(Operation.RANKING_FILMES, movies::rankMovies);
+        authenticated(Operation.IMPORTAR_FILMES, MovieImportController.getInstance()::importMovies);
+
+        // Reviews
+        authenticated(Operation.CRIAR_REVIEW, reviews::createReview);
+        authenticated(Operation.LISTAR_REVIEWS_USUARIO, reviews::listUserReviews);
+        authenticated(Operation.EDITAR_REVIEW, reviews::updateReview);
+        authenticated(Operation.EXCLUIR_REVIEW, reviews::deleteReview);
+
+        // Lote (cada item é autenticado de novo ao ser despachado)
+        handlers.put(Operation.LOTE, (request, session) -> {
+            session.authenticate(request.getToken());
+            return BatchController.getInstance().executeBatch(this, request.getToken(), request.getJson(), session);
+        });
+
+        // Monitoramento (ADM)
+        authenticated(Operation.METRICAS, (principal, json) -> MetricsController.getInstance().getMetrics(principal, server));
+    }
+
+    // Sobrecarga para manter compatibilidade caso seja instanciado sem servidor (testes), embora não usado aqui
     public RequestRouter() {
         this(null);
     }
 
+    private void authenticated(Operation operation, AuthenticatedHandler handler) {
+        handlers.put(operation, (request, session) ->
+                handler.handle(session.authenticate(request.getToken()), request.getJson()));
+    }
+
+    // Sem sessão de conexão: todo token é verificado a cada chamada
     public JSONObject handleRequest(String jsonRequestString) {
+        return handleRequest(jsonRequestString, new ClientSession());
+    }
+
+    public JSONObject handleRequest(String jsonRequestString, ClientSession session) {
+        return handleRequest(ClientRequest.parse(jsonRequestString), session);
+    }
+
+    // Requisição já convertida
+    public JSONObject handleRequest(JSONObject request, ClientSession session) {
+        return handleRequest(ClientRequest.of(request), session);
+    }
+
+    /**
+     * Processa uma requisição de uma conexão. O token é resolvido pela sessão
+     * da conexão antes de chegar aos controllers, que recebem o
+     * {@link UserPrincipal} já verificado.
+     */
+    public JSONObject handleRequest(ClientRequest request, ClientSession session) {
+        return handle(request, session, true);
+    }
+
+    /** Item de um LOTE: o lote já foi admitido pesando todos os itens. */
+    public JSONObject handleBatchItem(ClientRequest request, ClientSession session) {
+        return handle(request, session, false);
+    }
+
+    private JSONObject handle(ClientRequest request, ClientSession session, boolean admit) {
+        if (request.isOversized()) {
+            metrics.record(MetricsRegistry.INVALID_OPERATION, "413", 0);
+            return createErrorResponse(413, "Erro: Requisição grande demais");
+        }
+        if (!request.isValidJson()) {
+            JSONObject response = createErrorResponse(422, "Erro: Chaves faltantes ou invalidas");
+            metrics.record(MetricsRegistry.INVALID_OPERATION, "422", 0);
+            return response;
+        }
+
+        long start = System.nanoTime();
+        JSONObject response = dispatch(request, session, admit);
+
+        // Em streaming a consulta só roda na escrita: quem grava é o RequestPipeline, depois de escrever
+        if (!ResponseWriter.isStreaming(response)) {
+            metrics.record(request.getMetricName(), response.optString("status", "500"), System.nanoTime() - start);
+        }
+        return response;
+    }
+
+    private JSONObject dispatch(ClientRequest request, ClientSession session, boolean admit) {
         try {
-            JSONObject request = new JSONObject(jsonRequestString);
-            String operacao = request.optString("operacao");
-            if(operacao.isEmpty()) return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
-
-            String token = request.optString("token", null);
-
-            switch (operacao) {
-                // Usuário/Auth
-                case "LOGIN": return userController.login(request);
-                case "CRIAR_USUARIO": return userController.register(request);
-                case "LOGOUT": return userController.logout(token);
-                case "LISTAR_PROPRIO_USUARIO": return userController.viewProfile(token);
-                case "EDITAR_PROPRIO_USUARIO": return userController.updatePassword(token, request);
-                case "EXCLUIR_PROPRIO_USUARIO": return userController.deleteAccount(token);
-
-                // Admin Usuário
-                case "LISTAR_USUARIOS": return userController.listAllUsers(token);
-                case "ADMIN_EDITAR_USUARIO": return userController.updateOtherUserPassword(token, request);
-                case "ADMIN_EXCLUIR_USUARIO": return userController.deleteOtherUser(token, request);
-
-                // Filmes
-                case "CRIAR_FILME": return movieController.createMovie(token, request);
-                case "EDITAR_FILME": return movieController.updateMovie(token, request);
-                case "EXCLUIR_FILME": return movieController.deleteMovie(token, request);
-                case "LISTAR_FILMES": return movieController.listAllMovies(token);
-                case "BUSCAR_FILME_ID": return movieController.getMovieById(token, request);
-
-                // Reviews
-                case "CRIAR_REVIEW": return reviewController.createReview(token, request);
-                case "LISTAR_REVIEWS_USUARIO": return reviewController.listUserReviews(token);
-                case "EDITAR_REVIEW": return reviewController.updateReview(token, request);
-                case "EXCLUIR_REVIEW": return reviewController.deleteReview(token, request);
-
-                default:
-                    return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
+            if (request.getOperacao().isEmpty()) return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
+
+            // Limite por cliente, antes de qualquer trabalho (o descarte por
+            // sobrecarga já aconteceu no RequestPipeline, antes da fila dos workers)
+            if (admit) {
+                JSONObject rejected = admission.admit(request.getOperation(), request.getToken(), session, weightOf(request));
+                if (rejected != null) return rejected;
             }
 
+            Handler handler = request.getOperation() == null ? null : handlers.get(request.getOperation());
+            if (handler == null) return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
+            return handler.handle(request, session);
+
+        } catch (JwtException e) {
+            return createErrorResponse(401, "Erro: Token inválido");
         } catch (JSONException e) {
             return createErrorResponse(422, "Erro: Chaves faltantes ou invalidas");
         } catch (Exception e) {
@@ -66,9 +171,16 @@ public class RequestRouter {
         }
     }
 
+    // LOTE gasta uma ficha por item; o resto, uma
+    private static int weightOf(ClientRequest request) {
+        if (request.getOperation() != Operation.LOTE) return 1;
+        JSONArray requisicoes = request.getJson().optJSONArray("requisicoes");
+        return requisicoes == null ? 1 : Math.max(1, requisicoes.length());
+    }
+
     private JSONObject createErrorResponse(int status, String message) {
         JSONObject response = new JSONObject().put("status", String.valueOf(status));
         if (message != null) response.put("mensagem", message);
         return response;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Serialização das respostas direto no writer do socket.
+ *
+ * Produz exatamente os mesmos bytes de {@code response.toString()}: as chaves
+ * saem na ordem do próprio JSONObject e cada valor é serializado pelo org.json.
+ * A diferença é que um {@link JsonRowStream} é escrito linha a linha e a
+ * listagem já serializada do cache vai direto para o writer, sem montar a
+ * resposta inteira numa String; o pico de memória não depende do tamanho do
+ * resultado.
+ */
+public final class ResponseWriter {
+
+    private ResponseWriter() {
+    }
+
+    /** Indica se a resposta tem algum valor que deve ser escrito em streaming. */
+    public static boolean isStreaming(JSONObject response) {
+        for (String key : response.keySet()) {
+            Object value = response.opt(key);
+            if (value instanceof JsonRowStream || value instanceof MovieCatalogCache.Listing) return true;
+        }
+        return false;
+    }
+
+    public static void write(JSONObject response, Writer out) throws IOException {
+        boolean first = true;
+        out.write('{');
+        for (String key : response.keySet()) {
+            if (!first) out.write(',');
+            first = false;
+            out.write(JSONObject.quote(key));
+            out.write(':');
+
+            Object value = response.opt(key);
+            if (value instanceof JsonRowStream) {
+                ((JsonRowStream) value).writeTo(out);
+            } else {
+                out.write(JSONObject.valueToString(value));
+            }
+        }
+        out.write('}');
+    }
+
+    /** Linha de log de uma resposta em streaming (sem repetir o payload). */
+    public static String summary(JSONObject response) {
+        StringBuilder sb = new StringBuilder("{status=").append(response.optString("status"));
+        for (String key : response.keySet()) {
+            Object value = response.opt(key);
+            if (value instanceof JsonRowStream) {
+                sb.append(", ").append(key).append('=').append(((JsonRowStream) value).getRowCount()).append(" itens");
+            } else if (value instanceof MovieCatalogCache.Listing) {
+                sb.append(", ").append(key).append('=').append(((MovieCatalogCache.Listing) value).getFilmes().size()).append(" itens");
+            }
+        }
+        return sb.append("} (streaming)").toString();
+    }
+}
@@ -1,41 +1,41 @@
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.JwtException;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 
 public class ReviewController {
 
+    private static final ReviewController INSTANCE = new ReviewController();
+
+    public static ReviewController getInstance() {
+        return INSTANCE;
+    }
+
     private final DatabaseService db;
-    private final JwtService jwt;
+    private final MovieCatalogCache catalog;
 
-    public ReviewController() {
+    private ReviewController() {
         this.db = DatabaseService.getInstance();
-        this.jwt = new JwtService();
+        this.catalog = MovieCatalogCache.getInstance();
     }
 
     /**
      * Operação: CRIAR_REVIEW
      * Cria uma nova avaliação para um filme.
      */
-    public JSONObject createReview(String token, JSONObject request) {
+    public JSONObject createReview(UserPrincipal principal, JSONObject request) {
         try {
-            // Validação de Token
-            Claims claims = jwt.validateAndGetClaims(token);
-
             // --- ALTERAÇÃO: Restrição para Admin ---
             // Administradores não podem criar avaliações (Regra de Negócio)
-            String role = claims.get("role", String.class);
+            String role = principal.getRole();
             if ("admin".equals(role)) {
                 return createErrorResponse(403, "Erro: Administradores não podem criar avaliações.");
             }
             // ---------------------------------------
 
-            int userId = claims.get("id", Integer.class);
-            String username = claims.getSubject();
+            int userId = principal.getId();
+            String username = principal.getUsername();
 
             JSONObject reviewData = request.getJSONObject("review");
 
@@ -47,7 +47,7 @@ public class ReviewController {
             int idFilme = Integer.parseInt(reviewData.getString("id_filme"));
 
             // Valida existência do filme
-            if (db.findMovieByIdAsJson(idFilme) == null) {
+            if (catalog.findMovieById(idFilme) == null) {
                 return createErrorResponse(404, "Erro: Recurso inexistente");
             }
 
@@ -79,8 +79,6 @@ public class ReviewController {
 
         } catch (org.h2.jdbc.JdbcSQLIntegrityConstraintViolationException e) {
             return createErrorResponse(409, "Erro: Recurso ja existe");
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
         } catch (NumberFormatException e) {
             return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
         } catch (Exception e) {
@@ -92,20 +90,29 @@ public class ReviewController {
     /**
      * Operação: LISTAR_REVIEWS_USUARIO
      */
-    public JSONObject listUserReviews(String token) {
+    public JSONObject listUserReviews(UserPrincipal principal, JSONObject request) {
         try {
-            Claims claims = jwt.validateAndGetClaims(token);
-            int userId = claims.get("id", Integer.class);
-
-            List<JSONObject> reviews = db.getReviewsByUserId(userId);
+            int userId = principal.getId();
+
+            // Paginação opcional por keyset (limite/cursor)
+            Pagination pagination = Pagination.fromRequest(request);
+            if (pagination != null) {
+                Integer before = pagination.getCursor() == null ? null : Pagination.decodeReviewCursor(pagination.getCursor());
+                DatabaseService.Page page = db.getReviewsPageByUserId(userId, pagination.getLimite(), before);
+                return new JSONObject()
+                        .put("status", "200")
+                        .put("mensagem", "Sucesso: Operação realizada com sucesso")
+                        .put("reviews", new JSONArray(page.itens))
+                        .put("proximo_cursor", MovieController.nextCursor(page));
+            }
 
             return new JSONObject()
                     .put("status", "200")
                     .put("mensagem", "Sucesso: Operação realizada com sucesso")
-                    .put("reviews", new JSONArray(reviews));
+                    .put("reviews", new JSONArray(db.getReviewsByUserId(userId)));
 
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
         } catch (Exception e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
@@ -114,10 +121,9 @@ public class ReviewController {
     /**
      * Operação: EDITAR_REVIEW
      */
-    public JSONObject updateReview(String token, JSONObject request) {
+    public JSONObject updateReview(UserPrincipal principal, JSONObject request) {
         try {
-            Claims claims = jwt.validateAndGetClaims(token);
-            int userId = claims.get("id", Integer.class);
+            int userId = principal.getId();
 
             JSONObject reviewData = request.getJSONObject("review");
 
@@ -150,8 +156,6 @@ public class ReviewController {
 
             return createSuccessResponse(200, "Sucesso: operação realizada com sucesso");
 
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
         } catch (NumberFormatException e) {
             return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
         } catch (Exception e) {
@@ -162,11 +166,10 @@ public class ReviewController {
     /**
      * Operação: EXCLUIR_REVIEW
      */
-    public JSONObject deleteReview(String token, JSONObject request) {
+    public JSONObject deleteReview(UserPrincipal principal, JSONObject request) {
         try {
-            Claims claims = jwt.validateAndGetClaims(token);
-            int userId = claims.get("id", Integer.class);
-            String role = claims.get("role", String.class);
+            int userId = principal.getId();
+            String role = principal.getRole();
 
             if (!request.has("id")) {
                 return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
@@ -187,8 +190,6 @@ public class ReviewController {
             db.deleteReview(idReview);
             return createSuccessResponse(200, "Sucesso: operação realizada com sucesso");
 
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
         } catch (NumberFormatException e) {
             return createErrorResponse(400, "Erro: Operação não encontrada ou inválida");
         } catch (Exception e) {
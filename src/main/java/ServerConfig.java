@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Configuração do servidor VoteFlix®.
+ *
+ * Ordem de precedência (a última vence):
+ *  1. valores padrão / propriedades de sistema (-Dvoteflix.*);
+ *  2. arquivo de propriedades indicado por --config=arquivo.properties;
+ *  3. opções de linha de comando (--port=12345, --engine=nio, ...).
+ *
+ * As chaves do arquivo são as mesmas das opções, sem os "--".
+ */
+public class ServerConfig {
+
+    public static final String ENGINE_BLOCKING = "blocking";
+    public static final String ENGINE_NIO = "nio";
+
+    private int port = Integer.getInteger("voteflix.port", 12345);
+    private String engine = System.getProperty("voteflix.engine", ENGINE_BLOCKING);
+    private String executor = System.getProperty("voteflix.executor", ServerExecutors.PLATFORM);
+    private int maxConnections = Integer.getInteger("voteflix.maxConnections", 1000);
+    private int workerThreads = Integer.getInteger("voteflix.workers", 32);
+    private int workerQueue = Integer.getInteger("voteflix.worker.queue", 1024);
+    private int nioLoops = Integer.getInteger("voteflix.nio.loops", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private String dbPath = System.getProperty("voteflix.db.path", "./vote_flix_db");
+    private int dbPoolSize = Integer.getInteger("voteflix.db.pool.size", 10);
+    private long dbPoolTimeoutMs = Long.getLong("voteflix.db.pool.timeoutMs", 5000);
+    private int statementCacheSize = Integer.getInteger("voteflix.db.stmtCache.size", 32);
+    private int catalogCacheSize = Integer.getInteger("voteflix.catalogCache.size", 10_000);
+    private int tokenCacheSize = Integer.getInteger("voteflix.tokenCache.size", 10_000);
+    private int pipelineLimit = Integer.getInteger("voteflix.pipeline.limit", 8);
+    private int importBatchSize = Integer.getInteger("voteflix.import.batch", 500);
+    private int credentialThreads = Integer.getInteger("voteflix.credential.threads", Runtime.getRuntime().availableProcessors());
+    private int credentialQueue = Integer.getInteger("voteflix.credential.queue", 256);
+    private int rateRead = Integer.getInteger("voteflix.rate.read", 200);
+    private int rateReadBurst = Integer.getInteger("voteflix.rate.read.burst", 400);
+    private int rateHeavy = Integer.getInteger("voteflix.rate.heavy", 50);
+    private int rateHeavyBurst = Integer.getInteger("voteflix.rate.heavy.burst", 100);
+    private int shedBacklog = Integer.getInteger("voteflix.shed.backlog", 512);
+    private long shedDbWaitMs = Long.getLong("voteflix.shed.dbWaitMs", 200);
+    private String metricsFile = System.getProperty("voteflix.metrics.file", "");
+    private int metricsIntervalSeconds = Integer.getInteger("voteflix.metrics.intervalSeconds", 60);
+
+    public static String usage() {
+        return "Uso: java VoteFlixServer [opções]\n" +
+                "  --config=ARQUIVO          arquivo .properties com as opções abaixo\n" +
+                "  --port=N                  porta TCP (padrão 12345)\n" +
+                "  --engine=blocking|nio     motor de conexões (padrão blocking)\n" +
+                "  --executor=platform|virtual  threads dos clientes/workers (padrão platform)\n" +
+                "  --nio-loops=N             event loops do motor NIO\n" +
+                "  --max-connections=N       conexões simultâneas; acima disso o cliente recebe 503 (padrão 1000)\n" +
+                "  --workers=N               threads que executam as requisições (padrão 32)\n" +
+                "  --worker-queue=N          requisições aguardando um worker (padrão 1024)\n" +
+                "  --db-path=CAMINHO         arquivo do banco H2 (padrão ./vote_flix_db; mem:NOME para banco em memória)\n" +
+                "  --db-pool=N               conexões no pool JDBC (padrão 10)\n" +
+                "  --db-pool-timeout-ms=N    espera máxima por conexão (padrão 5000)\n" +
+                "  --stmt-cache=N            statements em cache por conexão (padrão 32)\n" +
+                "  --catalog-cache=N         filmes no cache do catálogo (padrão 10000)\n" +
+                "  --token-cache=N           tokens JWT já verificados em cache (padrão 10000, 0 desliga)\n" +
+                "  --pipeline-limit=N        requisições com id_requisicao em paralelo por conexão (padrão 8)\n" +
+                "  --import-batch=N          filmes por executeBatch/commit no IMPORTAR_FILMES (padrão 500)\n" +
+                "  --credential-threads=N    threads do hash de senhas (padrão: nº de CPUs)\n" +
+                "  --credential-queue=N      hashes aguardando antes de responder 503 (padrão 256)\n" +
+                "  --rate-read=N             leituras simples por segundo, por IP e por usuário (padrão 200, 0 desliga)\n" +
+                "  --rate-read-burst=N       rajada de leituras simples (padrão 400)\n" +
+                "  --rate-heavy=N            listagens e escritas por segundo, por IP e por usuário (padrão 50, 0 desliga)\n" +
+                "  --rate-heavy-burst=N      rajada de listagens e escritas (padrão 100)\n" +
+                "  --shed-backlog=N          requisições nos workers acima das quais o servidor responde 503 (padrão 512, 0 desliga)\n" +
+                "  --shed-db-wait-ms=N       espera média pelo pool acima da qual o servidor responde 503 (padrão 200, 0 desliga)\n" +
+                "  --metrics-file=ARQUIVO    regrava as métricas por operação neste arquivo (padrão: desligado)\n" +
+                "  --metrics-interval-s=N    intervalo de gravação do --metrics-file (padrão 60)";
+    }
+
+    /**
+     * Monta a configuração a partir dos argumentos de linha de comando.
+     * Lança IllegalArgumentException para opção desconhecida ou valor inválido.
+     */
+    public static ServerConfig fromArgs(String[] args) throws IOException {
+        ServerConfig config = new ServerConfig();
+
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                Properties props = new Properties();
+                try (InputStream in = Files.newInputStream(Paths.get(arg.substring("--config=".length())))) {
+                    props.load(in);
+                }
+                for (String key : props.stringPropertyNames()) {
+                    config.set(key, props.getProperty(key).trim());
+                }
+            }
+        }
+
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) continue;
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Opção inválida: " + arg);
+            }
+            config.set(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return config;
+    }
+
+    private void set(String key, String value) {
+        try {
+            switch (key) {
+                case "port": port = Integer.parseInt(value); break;
+                case "engine": engine = value; break;
+                case "executor": executor = value; break;
+                case "nio-loops": nioLoops = Integer.parseInt(value); break;
+                case "max-connections": maxConnections = Integer.parseInt(value); break;
+                case "workers": workerThreads = Integer.parseInt(value); break;
+                case "worker-queue": workerQueue = Integer.parseInt(value); break;
+                case "db-path": dbPath = value; break;
+                case "db-pool": dbPoolSize = Integer.parseInt(value); break;
+                case "db-pool-timeout-ms": dbPoolTimeoutMs = Long.parseLong(value); break;
+                case "stmt-cache": statementCacheSize = Integer.parseInt(value); break;
+                case "catalog-cache": catalogCacheSize = Integer.parseInt(value); break;
+                case "token-cache": tokenCacheSize = Integer.parseInt(value); break;
+                case "pipeline-limit": pipelineLimit = Integer.parseInt(value); break;
+                case "import-batch": importBatchSize = Integer.parseInt(value); break;
+                case "credential-threads": credentialThreads = Integer.parseInt(value); break;
+                case "credential-queue": credentialQueue = Integer.parseInt(value); break;
+                case "rate-read": rateRead = Integer.parseInt(value); break;
+                case "rate-read-burst": rateReadBurst = Integer.parseInt(value); break;
+                case "rate-heavy": rateHeavy = Integer.parseInt(value); break;
+                case "rate-heavy-burst": rateHeavyBurst = Integer.parseInt(value); break;
+                case "shed-backlog": shedBacklog = Integer.parseInt(value); break;
+                case "shed-db-wait-ms": shedDbWaitMs = Long.parseLong(value); break;
+                case "metrics-file": metricsFile = value; break;
+                case "metrics-interval-s": metricsIntervalSeconds = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Opção desconhecida: " + key);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para " + key + ": " + value);
+        }
+    }
+
+    // Getters / Setters
+    public int getPort() { return port; }
+    public void setPort(int port) { this.port = port; }
+    public String getEngine() { return engine; }
+    public void setEngine(String engine) { this.engine = engine; }
+    public boolean isNioEngine() { return ENGINE_NIO.equalsIgnoreCase(engine); }
+    public String getExecutor() { return executor; }
+    public int getNioLoops() { return nioLoops; }
+    public int getMaxConnections() { return maxConnections; }
+    public int getWorkerThreads() { return workerThreads; }
+    public int getWorkerQueue() { return workerQueue; }
+    public String getDbPath() { return dbPath; }
+    public int getDbPoolSize() { return dbPoolSize; }
+    public long getDbPoolTimeoutMs() { return dbPoolTimeoutMs; }
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public int getCatalogCacheSize() { return catalogCacheSize; }
+    public int getTokenCacheSize() { return tokenCacheSize; }
+    public int getPipelineLimit() { return pipelineLimit; }
+    public int getImportBatchSize() { return importBatchSize; }
+    public int getCredentialThreads() { return credentialThreads; }
+    public int getCredentialQueue() { return credentialQueue; }
+    public int getRateRead() { return rateRead; }
+    public int getRateReadBurst() { return rateReadBurst; }
+    public int getRateHeavy() { return rateHeavy; }
+    public int getRateHeavyBurst() { return rateHeavyBurst; }
+    public int getShedBacklog() { return shedBacklog; }
+    public long getShedDbWaitMs() { return shedDbWaitMs; }
+    public String getMetricsFile() { return metricsFile; }
+    public int getMetricsIntervalSeconds() { return metricsIntervalSeconds; }
+
+    @Override
+    public String toString() {
+        return "port=" + port + ", engine=" + engine + ", executor=" + executor +
+                (isNioEngine() ? ", nio-loops=" + nioLoops : "") +
+                ", max-connections=" + maxConnections + ", workers=" + workerThreads + ", worker-queue=" + workerQueue +
+                ", db-path=" + dbPath + ", db-pool=" + dbPoolSize +
+                ", db-pool-timeout-ms=" + dbPoolTimeoutMs + ", stmt-cache=" + statementCacheSize +
+                ", catalog-cache=" + catalogCacheSize + ", token-cache=" + tokenCacheSize +
+                ", pipeline-limit=" + pipelineLimit + ", import-batch=" + importBatchSize +
+                ", credential-threads=" + credentialThreads + ", credential-queue=" + credentialQueue +
+                ", rate-read=" + rateRead + "/" + rateReadBurst + ", rate-heavy=" + rateHeavy + "/" + rateHeavyBurst +
+                ", shed-backlog=" + shedBacklog + ", shed-db-wait-ms=" + shedDbWaitMs +
+                (metricsFile.isEmpty() ? "" : ", metrics-file=" + metricsFile + ", metrics-interval-s=" + metricsIntervalSeconds);
+    }
+}
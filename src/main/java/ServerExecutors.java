@@ -0,0 +1,65 @@
+import org.json.JSONObject;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fábrica dos executores do servidor:
+ *  - conexões: uma thread de leitura por cliente do motor bloqueante
+ *    ({@link ClientHandler}), no máximo --max-connections;
+ *  - workers: executam as requisições ({@link RequestPipeline}) dos dois
+ *    motores, --workers threads com fila de --worker-queue tarefas.
+ *
+ * Modos (--executor=... no {@link ServerConfig}):
+ *  - "platform": {@link BoundedExecutor}, tamanho fixo e fila limitada (padrão);
+ *  - "virtual":  uma virtual thread por tarefa (requer JDK 21+). As esperas de
+ *    readLine() e do JDBC liberam a thread do SO enquanto bloqueiam. Não há
+ *    fila a limitar; o teto vem do limite de conexões e do pipeline-limit.
+ *
+ * O executor virtual é obtido por reflexão para que o mesmo código compile com
+ * o alvo padrão (17); em JDKs sem virtual threads cai no pool de plataforma.
+ *
+ * Auditoria de pinning: um bloco synchronized que bloqueia em I/O prende a
+ * virtual thread à carrier thread. No código do servidor o único caso era
+ * DatabaseService.getInstance(), trocado por inicialização estática. Os
+ * demais pontos bloqueantes (socket, JDBC) não rodam dentro de synchronized.
+ */
+public final class ServerExecutors {
+
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    private ServerExecutors() {
+    }
+
+    public static ExecutorService newConnectionExecutor(ServerConfig config) {
+        ExecutorService virtual = newVirtualExecutor(config.getExecutor());
+        if (virtual != null) return virtual;
+        return new BoundedExecutor("conexao", config.getMaxConnections(), 0);
+    }
+
+    public static ExecutorService newWorkerExecutor(ServerConfig config) {
+        ExecutorService virtual = newVirtualExecutor(config.getExecutor());
+        if (virtual != null) return virtual;
+        return new BoundedExecutor("worker", config.getWorkerThreads(), config.getWorkerQueue());
+    }
+
+    /** Medidores de um executor criado aqui (os virtuais não têm fila nem limite a medir). */
+    public static JSONObject getStats(ExecutorService executor) {
+        if (executor instanceof BoundedExecutor) return ((BoundedExecutor) executor).getStats();
+        return new JSONObject().put("tipo", executor != null ? VIRTUAL : "parado");
+    }
+
+    private static ExecutorService newVirtualExecutor(String mode) {
+        if (VIRTUAL.equalsIgnoreCase(mode)) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                ServerLog.error("Virtual threads indisponíveis neste JDK (" + Runtime.version() + "), usando threads de plataforma.");
+            }
+        }
+        return null;
+    }
+}
@@ -1,38 +1,43 @@
+import org.json.JSONObject;
+
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
-public class ServerGui extends JFrame {
+/**
+ * Painel de controle do servidor. É apenas um observador ({@link ServerListener})
+ * do {@link VoteFlixServer}; toda a lógica do servidor fica no núcleo.
+ */
+public class ServerGui extends JFrame implements ServerListener {
 
     // Componentes da UI
     private JTextField portField;
     private JButton startButton;
+    private JComboBox<String> engineBox;
     private JTextField ipField;
     private JTextArea logArea;
     private JList<String> activeClientsList;
     private DefaultListModel<String> activeClientsModel;
     private JTable dbTable;
     private JButton refreshDbButton;
+    private JLabel loadLabel;
+    private final Timer loadTimer;
+
+    // Quantidade de linhas mantidas na área de log
+    private static final int MAX_LOG_LINES = 5000;
 
-    // Lógica do Servidor
-    private ExecutorService pool;
-    private ServerSocket serverSocket;
-    private Thread serverThread;
+    // Núcleo do Servidor
+    private final VoteFlixServer server;
 
-    // --- NOVO: Mapa para rastrear UserID -> ClientHandler ---
-    private final Map<Integer, ClientHandler> onlineUsers = new ConcurrentHashMap<>();
+    public ServerGui(VoteFlixServer server) {
+        this.server = server;
+        server.addListener(this);
 
-    public ServerGui() {
         setTitle("VoteFlix® Server - Control Panel");
         setSize(800, 600);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -46,9 +51,14 @@ public class ServerGui extends JFrame {
         topPanel.add(ipField);
 
         topPanel.add(new JLabel("Port:"));
-        portField = new JTextField("12345", 5);
+        portField = new JTextField(String.valueOf(server.getConfig().getPort()), 5);
         topPanel.add(portField);
 
+        topPanel.add(new JLabel("Engine:"));
+        engineBox = new JComboBox<>(new String[] { ServerConfig.ENGINE_BLOCKING, ServerConfig.ENGINE_NIO });
+        engineBox.setSelectedItem(server.getConfig().isNioEngine() ? ServerConfig.ENGINE_NIO : ServerConfig.ENGINE_BLOCKING);
+        topPanel.add(engineBox);
+
         startButton = new JButton("Start Server");
         startButton.addActionListener(e -> toggleServer());
         topPanel.add(startButton);
@@ -66,10 +76,12 @@ public class ServerGui extends JFrame {
         JScrollPane logScrollPane = new JScrollPane(logArea);
         mainSplit.setRightComponent(logScrollPane);
 
-        // Redireciona System.out e System.err para o logArea
-        TextAreaOutputStream taos = new TextAreaOutputStream(logArea);
-        System.setOut(new PrintStream(taos, true));
-        System.setErr(new PrintStream(taos, true));
+        // O log do servidor passa a ser exibido no logArea, em lotes
+        ServerLog.setSink(new TextAreaLogSink(logArea, MAX_LOG_LINES));
+
+        // O que ainda for escrito direto em System.out/System.err também vai para o log
+        System.setOut(new PrintStream(new LogOutputStream(false), true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(new LogOutputStream(true), true, StandardCharsets.UTF_8));
 
         // --- 2b. Painel de Informações (Esquerda) ---
         JSplitPane infoSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT);
@@ -97,8 +109,13 @@ public class ServerGui extends JFrame {
         mainSplit.setLeftComponent(infoSplit);
         add(mainSplit, BorderLayout.CENTER);
 
+        // --- 3. Barra de Status (medidores de carga, atualizados a cada segundo) ---
+        loadLabel = new JLabel(" ");
+        loadLabel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        add(loadLabel, BorderLayout.SOUTH);
+        loadTimer = new Timer(1000, e -> refreshLoad());
+
         // Inicialização
-        pool = Executors.newCachedThreadPool();
         try {
             ipField.setText(InetAddress.getLocalHost().getHostAddress());
         } catch (Exception e) {
@@ -107,7 +124,7 @@ public class ServerGui extends JFrame {
     }
 
     private void toggleServer() {
-        if (serverThread == null || !serverThread.isAlive()) {
+        if (!server.isRunning()) {
             startServer();
         } else {
             stopServer();
@@ -117,63 +134,43 @@ public class ServerGui extends JFrame {
     private void startServer() {
         try {
             int port = Integer.parseInt(portField.getText());
+            server.getConfig().setPort(port);
+            server.getConfig().setEngine((String) engineBox.getSelectedItem());
             portField.setEditable(false);
+            engineBox.setEnabled(false);
             startButton.setText("Stop Server");
 
-            // Inicializa o DB ANTES de começar a aceitar conexões
-            DatabaseService.getInstance().initializeDatabase();
-            System.out.println("Banco de dados H2 inicializado com sucesso.");
-            refreshDatabaseView(); // Carrega a tabela na UI
-
-            // A lógica do servidor DEVE rodar em uma thread separada
-            serverThread = new Thread(() -> {
-                try (ServerSocket ss = new ServerSocket(port)) {
-                    serverSocket = ss; // Armazena a referência para poder fechar
-                    System.out.println("Servidor VoteFlix® aguardando conexões na porta " + port + "...");
-
-                    while (!serverSocket.isClosed()) {
-                        Socket clientSocket = serverSocket.accept();
-                        System.out.println("Novo cliente conectado: " + clientSocket.getInetAddress());
-
-                        // Passa a referência da GUI para o ClientHandler
-                        pool.execute(new ClientHandler(clientSocket, this));
-                    }
-                } catch (IOException e) {
-                    if (!serverSocket.isClosed()) {
-                        System.err.println("Erro no ServerSocket: " + e.getMessage());
-                    }
-                }
-            });
-            serverThread.start();
-
+            server.start();
         } catch (NumberFormatException e) {
-            System.err.println("Porta inválida.");
+            ServerLog.error("Porta inválida.");
+        } catch (IOException e) {
+            ServerLog.error("Erro no ServerSocket: " + e.getMessage());
+            server.stop();
         } catch (Exception e) {
-            System.err.println("Falha ao inicializar o banco de dados: " + e.getMessage());
+            ServerLog.error("Falha ao inicializar o banco de dados: " + e.getMessage());
         }
     }
 
     private void stopServer() {
-        try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close(); // Isso vai interromper o loop .accept()
-            }
-            if (serverThread != null) {
-                serverThread.join(1000); // Espera a thread do servidor morrer
-            }
-            pool.shutdownNow(); // Força o desligamento de todos os handlers
-            pool = Executors.newCachedThreadPool(); // Cria um novo pool para o próximo start
-
-            onlineUsers.clear(); // Limpa mapa de usuários
-
-            System.out.println("Servidor parado.");
-            portField.setEditable(true);
-            startButton.setText("Start Server");
-            activeClientsModel.clear();
+        server.stop();
+    }
 
-        } catch (Exception e) {
-            System.err.println("Erro ao parar o servidor: " + e.getMessage());
+    private void refreshLoad() {
+        JSONObject load = server.getLoadStats();
+        JSONObject workers = load.getJSONObject("workers");
+        StringBuilder text = new StringBuilder()
+                .append("Connections: ").append(load.getInt("conexoes_abertas"))
+                .append("/").append(load.getInt("conexoes_max"))
+                .append("  (refused ").append(load.getLong("conexoes_recusadas")).append(")");
+        if (workers.has("ativas")) {
+            text.append("   Workers: ").append(workers.getInt("ativas")).append("/").append(workers.getInt("threads"))
+                    .append(" active   Queue: ").append(workers.getInt("fila_atual"))
+                    .append("/").append(workers.getInt("fila_capacidade"))
+                    .append("   Rejected: ").append(workers.getLong("recusadas"));
+        } else {
+            text.append("   Workers: virtual threads");
         }
+        loadLabel.setText(text.toString());
     }
 
     private void refreshDatabaseView() {
@@ -182,44 +179,50 @@ public class ServerGui extends JFrame {
             Object[][] data = DatabaseService.getInstance().getAllUsersForTable();
             dbTable.setModel(new DefaultTableModel(data, columnNames));
         } catch (SQLException e) {
-            System.err.println("Falha ao atualizar a visão do DB: " + e.getMessage());
+            ServerLog.error("Falha ao atualizar a visão do DB: " + e.getMessage());
         }
     }
 
-    // Métodos Thread-Safe para atualizar a UI
-    public void addActiveClient(String clientId) {
-        SwingUtilities.invokeLater(() -> activeClientsModel.addElement(clientId));
-    }
+    // --- Eventos do servidor (chegam em threads do servidor) ---
 
-    public void removeActiveClient(String clientId) {
-        SwingUtilities.invokeLater(() -> activeClientsModel.removeElement(clientId));
+    @Override
+    public void serverStarted() {
+        SwingUtilities.invokeLater(() -> {
+            refreshDatabaseView(); // Carrega a tabela na UI
+            loadTimer.start();
+        });
     }
 
-    // --- NOVOS MÉTODOS DE CONTROLE DE SESSÃO ---
-
-    public void registerUser(int userId, ClientHandler client) {
-        onlineUsers.put(userId, client);
-        System.out.println("[SESSION] User ID " + userId + " logado e registrado.");
+    @Override
+    public void serverStopped() {
+        SwingUtilities.invokeLater(() -> {
+            portField.setEditable(true);
+            engineBox.setEnabled(true);
+            startButton.setText("Start Server");
+            activeClientsModel.clear();
+            loadTimer.stop();
+            loadLabel.setText(" ");
+        });
     }
 
-    public void unregisterUser(int userId) {
-        onlineUsers.remove(userId);
+    // Métodos Thread-Safe para atualizar a UI
+    @Override
+    public void clientConnected(String clientId) {
+        SwingUtilities.invokeLater(() -> activeClientsModel.addElement(clientId));
     }
 
-    public void disconnectUser(int userId) {
-        ClientHandler client = onlineUsers.remove(userId);
-        if (client != null) {
-            System.out.println("[ADMIN] Forçando desconexão do User ID " + userId);
-            client.forceClose(); // Derruba o socket
-        }
+    @Override
+    public void clientDisconnected(String clientId) {
+        SwingUtilities.invokeLater(() -> activeClientsModel.removeElement(clientId));
     }
 
-    // Ponto de entrada
-    public static void main(String[] args) {
+    // Ponto de entrada (com interface gráfica); aceita as mesmas opções do VoteFlixServer
+    public static void main(String[] args) throws Exception {
+        VoteFlixServer server = new VoteFlixServer(ServerConfig.fromArgs(args));
         SwingUtilities.invokeLater(() -> {
-            ServerGui gui = new ServerGui();
+            ServerGui gui = new ServerGui(server);
             gui.setLocationRelativeTo(null); // Centraliza
             gui.setVisible(true);
         });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+/**
+ * Observador opcional do {@link VoteFlixServer} (ex.: a {@link ServerGui}).
+ * Os métodos são chamados nas threads do servidor; quem mexe em UI deve
+ * repassar para a thread dela.
+ */
+public interface ServerListener {
+
+    default void serverStarted() {
+    }
+
+    default void serverStopped() {
+    }
+
+    default void clientConnected(String clientId) {
+    }
+
+    default void clientDisconnected(String clientId) {
+    }
+}
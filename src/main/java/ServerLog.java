@@ -0,0 +1,120 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log assíncrono do servidor.
+ *
+ * As threads de requisição só fazem um CAS para reservar uma posição num ring
+ * buffer fixo; nunca bloqueiam. Se o buffer estiver cheio a linha é descartada
+ * e contada. Uma thread de fundo esvazia o buffer em lotes a cada
+ * FLUSH_INTERVAL_MS e entrega cada lote ao {@link Sink} atual (console por
+ * padrão, ou a área de log da {@link ServerGui}).
+ */
+public final class ServerLog {
+
+    /** Destino dos lotes de linhas; chamado sempre pela thread do drenador. */
+    public interface Sink {
+        void write(List<String> lines);
+    }
+
+    private static final int CAPACITY = 1 << 14; // Potência de 2
+    private static final int MASK = CAPACITY - 1;
+    private static final long FLUSH_INTERVAL_MS = 100;
+
+    // Guarda o stdout original antes que a GUI redirecione System.out
+    private static final PrintStream CONSOLE = System.out;
+    private static final Sink CONSOLE_SINK = lines -> {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) sb.append(line).append(System.lineSeparator());
+        CONSOLE.print(sb);
+        CONSOLE.flush();
+    };
+
+    private static final AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong(); // Próxima posição a reservar (produtores)
+    private static final AtomicLong head = new AtomicLong(); // Próxima posição a ler (drenador)
+    private static final LongAdder dropped = new LongAdder();
+    private static final Object drainLock = new Object();     // Só entre consumidores (drenador e flush)
+
+    private static volatile Sink sink = CONSOLE_SINK;
+    private static long reportedDropped = 0;
+
+    static {
+        Thread drainer = new Thread(ServerLog::drainLoop, "log-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    private ServerLog() {
+    }
+
+    public static void info(String line) {
+        offer(line);
+    }
+
+    public static void error(String line) {
+        offer("[ERRO] " + line);
+    }
+
+    public static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : CONSOLE_SINK;
+    }
+
+    public static long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private static void offer(String line) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head.get() >= CAPACITY) {
+                dropped.increment(); // Buffer cheio: descarta em vez de travar a requisição
+                return;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        slots.set((int) t & MASK, line);
+    }
+
+    private static void drainLoop() {
+        while (true) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS));
+            flush();
+        }
+    }
+
+    /** Entrega imediatamente ao sink tudo o que já foi publicado. */
+    public static void flush() {
+        synchronized (drainLock) {
+            List<String> batch = new ArrayList<>();
+            long h = head.get();
+            String line;
+            // Para no primeiro slot reservado mas ainda não preenchido
+            while ((line = slots.get((int) h & MASK)) != null) {
+                slots.set((int) h & MASK, null);
+                batch.add(line);
+                h++;
+                head.set(h);
+            }
+
+            long totalDropped = dropped.sum();
+            if (totalDropped > reportedDropped) {
+                batch.add("[LOG] " + (totalDropped - reportedDropped) + " linhas descartadas (buffer de log cheio)");
+                reportedDropped = totalDropped;
+            }
+
+            if (batch.isEmpty()) return;
+            try {
+                sink.write(batch);
+            } catch (RuntimeException e) {
+                CONSOLE.println("[LOG] Falha no sink de log: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import java.util.List;
+
+/**
+ * Sink do {@link ServerLog} que mostra o log numa JTextArea.
+ *
+ * Cada lote vira um único invokeLater (em vez de um por linha), e a área
+ * guarda apenas as últimas maxLines linhas para não crescer sem limite.
+ */
+public class TextAreaLogSink implements ServerLog.Sink {
+
+    private final JTextArea textArea;
+    private final int maxLines;
+
+    public TextAreaLogSink(JTextArea textArea, int maxLines) {
+        this.textArea = textArea;
+        this.maxLines = maxLines;
+    }
+
+    @Override
+    public void write(List<String> lines) {
+        // Se o lote sozinho já passa do limite, só as últimas linhas aparecem
+        int from = Math.max(0, lines.size() - maxLines);
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < lines.size(); i++) {
+            sb.append(lines.get(i)).append('\n');
+        }
+        final String text = sb.toString();
+
+        SwingUtilities.invokeLater(() -> {
+            textArea.append(text);
+            trimToMaxLines();
+            // Auto-scroll para o final
+            textArea.setCaretPosition(textArea.getDocument().getLength());
+        });
+    }
+
+    private void trimToMaxLines() {
+        // A última "linha" é vazia, depois do '\n' final
+        int excess = textArea.getLineCount() - 1 - maxLines;
+        if (excess <= 0) return;
+        try {
+            textArea.replaceRange("", 0, textArea.getLineStartOffset(excess));
+        } catch (BadLocationException e) {
+            textArea.setText("");
+        }
+    }
+}
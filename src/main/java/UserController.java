@@ -1,34 +1,30 @@
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.JwtException;
 import org.json.JSONObject;
-import org.json.JSONArray;
-import java.util.List;
 import java.sql.SQLException;
+import java.util.concurrent.RejectedExecutionException;
 
 public class UserController {
 
+    // Sem estado por conexão: uma instância atende todas
+    private static final UserController INSTANCE = new UserController();
+
+    public static UserController getInstance() {
+        return INSTANCE;
+    }
+
     private final DatabaseService db;
     private final JwtService jwt;
-    private final ServerGui gui; // NOVO
+    private final CredentialExecutor credentials;
 
-    // Construtor principal
-    public UserController(ServerGui gui) {
+    private UserController() {
         this.db = DatabaseService.getInstance();
-        this.jwt = new JwtService();
-        this.gui = gui;
-    }
-
-    // Construtor sem GUI (fallback)
-    public UserController() {
-        this(null);
+        this.jwt = JwtService.getInstance();
+        this.credentials = CredentialExecutor.getInstance();
     }
 
-    private Claims validateAdmin(String token) throws JwtException, SecurityException {
-        Claims claims = jwt.validateAndGetClaims(token);
-        if (!"admin".equals(claims.get("role", String.class))) {
+    private void validateAdmin(UserPrincipal principal) throws SecurityException {
+        if (!principal.isAdmin()) {
             throw new SecurityException("Acesso negado: Requer privilégios de ADM");
         }
-        return claims;
     }
 
     public JSONObject register(JSONObject request) {
@@ -50,11 +46,13 @@ public class UserController {
                 return createErrorResponse(409, "Erro: Recurso ja existe");
             }
 
-            String passwordHash = PasswordService.hashPassword(password);
+            String passwordHash = credentials.hashPassword(password);
             db.createUser(username, passwordHash, "user");
 
             return new JSONObject().put("status", "201").put("mensagem", "Sucesso: Recurso cadastrado");
 
+        } catch (RejectedExecutionException e) {
+            return createErrorResponse(503, "Erro: Servidor ocupado, tente novamente mais tarde");
         } catch (SQLException e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
@@ -67,7 +65,7 @@ public class UserController {
         try {
             User user = db.findUserByUsername(username);
 
-            if (user == null || !PasswordService.checkPassword(password, user.getPasswordHash())) {
+            if (user == null || !credentials.checkPassword(password, user.getPasswordHash())) {
                 return createErrorResponse(403, "Erro: sem permissão");
             }
 
@@ -78,36 +76,28 @@ public class UserController {
                     .put("mensagem", "Sucesso: operação realizada com sucesso")
                     .put("token", token);
 
+        } catch (RejectedExecutionException e) {
+            return createErrorResponse(503, "Erro: Servidor ocupado, tente novamente mais tarde");
         } catch (SQLException e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
-    public JSONObject viewProfile(String token) {
-        try {
-            Claims claims = jwt.validateAndGetClaims(token);
-            String username = claims.getSubject();
-
-            return new JSONObject()
-                    .put("status", "200")
-                    .put("mensagem", "Sucesso: operação realizada com sucesso")
-                    .put("usuario", username);
-
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
-        }
+    public JSONObject viewProfile(UserPrincipal principal) {
+        return new JSONObject()
+                .put("status", "200")
+                .put("mensagem", "Sucesso: operação realizada com sucesso")
+                .put("usuario", principal.getUsername());
     }
 
-    public JSONObject updatePassword(String token, JSONObject request) {
+    public JSONObject updatePassword(UserPrincipal principal, JSONObject request) {
         try {
-            Claims claims = jwt.validateAndGetClaims(token);
-
-            String role = claims.get("role", String.class);
+            String role = principal.getRole();
             if ("admin".equals(role)) {
                 return createErrorResponse(403, "Erro: O usuário 'admin' não pode alterar a própria senha.");
             }
 
-            int userId = claims.get("id", Integer.class);
+            int userId = principal.getId();
             String newPassword = request.getJSONObject("usuario").getString("senha");
 
             String validationError = ValidationService.validateCredentials("valido", newPassword);
@@ -115,74 +105,57 @@ public class UserController {
                 return createErrorResponse(405, "Erro: Campos inválidos, verifique o tipo e quantidade de caracteres");
             }
 
-            String newPasswordHash = PasswordService.hashPassword(newPassword);
+            String newPasswordHash = credentials.hashPassword(newPassword);
             db.updateUserPassword(userId, newPasswordHash);
 
             return new JSONObject().put("status", "200").put("mensagem", "Sucesso: operação realizada com sucesso");
 
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
+        } catch (RejectedExecutionException e) {
+            return createErrorResponse(503, "Erro: Servidor ocupado, tente novamente mais tarde");
         } catch (SQLException e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
-    public JSONObject deleteAccount(String token) {
+    public JSONObject deleteAccount(UserPrincipal principal) {
         try {
-            Claims claims = jwt.validateAndGetClaims(token);
-
-            String role = claims.get("role", String.class);
+            String role = principal.getRole();
             if ("admin".equals(role)) {
                 return createErrorResponse(403, "Erro: sem permissão (O usuário 'admin' não pode ser excluído)");
             }
 
-            int userId = claims.get("id", Integer.class);
+            int userId = principal.getId();
 
             db.deleteReviewsByUserId(userId);
             db.deleteUser(userId);
 
             return new JSONObject().put("status", "200").put("mensagem", "Sucesso: operação realizada com sucesso");
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
         } catch (SQLException e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
-    public JSONObject listAllUsers(String token) {
+    public JSONObject listAllUsers(UserPrincipal principal) {
         try {
-            validateAdmin(token);
-            List<User> users = db.getAllUsers();
-            JSONArray userList = new JSONArray();
-
-            for (User user : users) {
-                userList.put(new JSONObject()
-                        .put("id", String.valueOf(user.getId()))
-                        .put("nome", user.getUsername())
-                );
-            }
+            validateAdmin(principal);
             return new JSONObject()
                     .put("status", "200")
                     .put("mensagem", "Sucesso: operação realizada com sucesso")
-                    .put("usuarios", userList);
+                    .put("usuarios", new JsonRowStream(db::streamUsersAsJson));
 
         } catch (SecurityException e) {
             return createErrorResponse(403, "Erro: sem permissão");
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
-        } catch (SQLException e) {
-            return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
-    public JSONObject updateOtherUserPassword(String token, JSONObject request) {
+    public JSONObject updateOtherUserPassword(UserPrincipal principal, JSONObject request) {
         try {
-            validateAdmin(token);
+            validateAdmin(principal);
 
             int userIdToUpdate = Integer.parseInt(request.getString("id"));
             String newPassword = request.getJSONObject("usuario").getString("senha");
 
-            String newPasswordHash = PasswordService.hashPassword(newPassword);
+            String newPasswordHash = credentials.hashPassword(newPassword);
             db.updateUserPassword(userIdToUpdate, newPasswordHash);
 
             return createErrorResponse(200, "Sucesso: operação realizada com sucesso");
@@ -190,8 +163,8 @@ public class UserController {
             return createErrorResponse(403, "Erro: sem permissão");
         } catch (NumberFormatException e) {
             return createErrorResponse(400, "Erro: ID inválido");
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
+        } catch (RejectedExecutionException e) {
+            return createErrorResponse(503, "Erro: Servidor ocupado, tente novamente mais tarde");
         } catch (SQLException e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
@@ -199,10 +172,12 @@ public class UserController {
 
     /**
      * Operação: ADMIN_EXCLUIR_USUARIO
+     *
+     * O servidor (pode ser null) derruba a sessão do usuário excluído.
      */
-    public JSONObject deleteOtherUser(String token, JSONObject request) {
+    public JSONObject deleteOtherUser(UserPrincipal principal, JSONObject request, VoteFlixServer server) {
         try {
-            validateAdmin(token);
+            validateAdmin(principal);
 
             int userIdToDelete = Integer.parseInt(request.getString("id"));
 
@@ -215,29 +190,23 @@ public class UserController {
             db.deleteUser(userIdToDelete);
 
             // --- NOVO: Kick no usuário se ele estiver online ---
-            if (gui != null) {
-                gui.disconnectUser(userIdToDelete);
+            // (dentro de um LOTE atômico, só depois do commit)
+            if (server != null) {
+                db.runAfterCommit(() -> server.disconnectUser(userIdToDelete));
             }
             // ---------------------------------------------------
 
             return createErrorResponse(200, "Sucesso: operação realizada com sucesso");
         } catch (SecurityException e) {
             return createErrorResponse(403, "Erro: sem permissão");
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
         } catch (SQLException e) {
             return createErrorResponse(500, "Erro: Falha interna do servidor");
         }
     }
 
-    public JSONObject logout(String token) {
-        try {
-            jwt.validateAndGetClaims(token);
-            return new JSONObject().put("status", "200").put("mensagem", "Sucesso: Operação realizada com sucesso");
-
-        } catch (JwtException e) {
-            return createErrorResponse(401, "Erro: Token inválido");
-        }
+    // O token já foi validado pela sessão; o RequestRouter desfaz a associação
+    public JSONObject logout(UserPrincipal principal) {
+        return new JSONObject().put("status", "200").put("mensagem", "Sucesso: Operação realizada com sucesso");
     }
 
     private JSONObject createErrorResponse(int status, String message) {
@@ -0,0 +1,35 @@
+import io.jsonwebtoken.Claims;
+
+/**
+ * Usuário autenticado de uma requisição, montado a partir de um token já
+ * verificado. É o que os controllers recebem no lugar do token bruto.
+ */
+public final class UserPrincipal {
+
+    private final int id;
+    private final String username;
+    private final String role;
+
+    public UserPrincipal(int id, String username, String role) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+    }
+
+    static UserPrincipal fromClaims(Claims claims) {
+        return new UserPrincipal(claims.get("id", Integer.class), claims.getSubject(), claims.get("role", String.class));
+    }
+
+    public int getId() { return id; }
+    public String getUsername() { return username; }
+    public String getRole() { return role; }
+
+    public boolean isAdmin() {
+        return "admin".equals(role);
+    }
+
+    @Override
+    public String toString() {
+        return username + " (ID " + id + ", " + role + ")";
+    }
+}
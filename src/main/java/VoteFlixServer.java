@@ -0,0 +1,272 @@
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Núcleo do servidor VoteFlix®: ciclo de vida, accept loop, executor dos
+ * clientes e sessões online. Não depende de Swing/AWT; a {@link ServerGui}
+ * é só um {@link ServerListener} opcional.
+ *
+ * Execução sem interface gráfica: java VoteFlixServer --port=12345 --engine=nio
+ */
+public class VoteFlixServer {
+
+    // Resposta a quem conecta acima de --max-connections (ou sem thread livre), antes de fechar
+    static final String BUSY_RESPONSE =
+            "{\"status\":\"503\",\"mensagem\":\"Erro: Servidor ocupado, tente novamente mais tarde\"}";
+
+    private final ServerConfig config;
+    private final RequestRouter router;
+    private final List<ServerListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Mapa para rastrear UserID -> conexão
+    private final Map<Integer, ClientConnection> onlineUsers = new ConcurrentHashMap<>();
+
+    private ExecutorService connections; // Threads de leitura do motor bloqueante
+    private ExecutorService workers;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final LongAdder refusedConnections = new LongAdder();
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+    private NioServerEngine nioEngine;
+
+    public VoteFlixServer(ServerConfig config) {
+        this.config = config;
+        this.router = new RequestRouter(this);
+    }
+
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    // Compartilhado por todas as conexões, dos dois motores
+    public RequestRouter getRouter() {
+        return router;
+    }
+
+    public void addListener(ServerListener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isRunning() {
+        return (serverThread != null && serverThread.isAlive()) || (nioEngine != null && nioEngine.isRunning());
+    }
+
+    /**
+     * Inicializa o banco e começa a aceitar conexões. Retorna quando o socket
+     * do servidor já está aberto.
+     */
+    public void start() throws SQLException, IOException {
+        // Inicializa o DB ANTES de começar a aceitar conexões
+        DatabaseService db = DatabaseService.getInstance();
+        db.configure(config);
+        db.initializeDatabase();
+        MovieCatalogCache.getInstance().configure(config);
+        MovieSearchIndex.getInstance().rebuild();
+        JwtService.getInstance().configure(config);
+        CredentialExecutor.getInstance().configure(config);
+        AdmissionControl.getInstance().configure(config);
+        MetricsRegistry.getInstance().start(config);
+        ServerLog.info("Banco de dados H2 inicializado com sucesso.");
+        ServerLog.info("Índice de busca montado com " + MovieSearchIndex.getInstance().size() + " filme(s).");
+        ServerLog.info("Configuração: " + config);
+
+        workers = ServerExecutors.newWorkerExecutor(config);
+        openConnections.set(0);
+
+        if (config.isNioEngine()) {
+            nioEngine = new NioServerEngine(config.getPort(), config.getNioLoops(), workers, this);
+            nioEngine.start();
+        } else {
+            connections = ServerExecutors.newConnectionExecutor(config);
+            ServerSocket ss = new ServerSocket(config.getPort());
+            serverSocket = ss; // Armazena a referência para poder fechar
+            ServerLog.info("Servidor VoteFlix® aguardando conexões na porta " + config.getPort() + "...");
+
+            // A lógica do servidor DEVE rodar em uma thread separada
+            serverThread = new Thread(() -> acceptLoop(ss), "accept");
+            serverThread.start();
+        }
+
+        for (ServerListener listener : listeners) listener.serverStarted();
+    }
+
+    private void acceptLoop(ServerSocket ss) {
+        try (ss) {
+            while (!ss.isClosed()) {
+                Socket clientSocket = ss.accept();
+                ServerLog.info("Novo cliente conectado: " + clientSocket.getInetAddress());
+                if (!tryOpenConnection()) {
+                    refuse(clientSocket);
+                    continue;
+                }
+                try {
+                    connections.execute(new ClientHandler(clientSocket, this, workers));
+                } catch (RejectedExecutionException e) {
+                    connectionClosed();
+                    refuse(clientSocket);
+                }
+            }
+        } catch (IOException e) {
+            if (!ss.isClosed()) {
+                ServerLog.error("Erro no ServerSocket: " + e.getMessage());
+            }
+        }
+    }
+
+    // O cliente recusado recebe a linha de "ocupado" em vez de ficar sem resposta
+    private void refuse(Socket clientSocket) {
+        ServerLog.info("[CONEXÕES] Limite atingido, recusando " + clientSocket.getInetAddress());
+        try (Socket s = clientSocket) {
+            s.setSoTimeout(1000);
+            s.getOutputStream().write((BUSY_RESPONSE + "\n").getBytes(StandardCharsets.UTF_8));
+            s.getOutputStream().flush();
+        } catch (IOException e) {
+            // O cliente já foi embora; nada a fazer
+        }
+    }
+
+    /**
+     * Reserva uma vaga de conexão (dos dois motores).
+     * @return false se já há --max-connections abertas; a recusa é contada.
+     */
+    boolean tryOpenConnection() {
+        int max = config.getMaxConnections();
+        while (true) {
+            int current = openConnections.get();
+            if (current >= max) {
+                refusedConnections.increment();
+                return false;
+            }
+            if (openConnections.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /** Libera a vaga de uma conexão aceita por {@link #tryOpenConnection()}. */
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    /** Medidores de carga ao vivo: conexões, threads de leitura e workers. */
+    public JSONObject getLoadStats() {
+        JSONObject stats = new JSONObject()
+                .put("conexoes_abertas", openConnections.get())
+                .put("conexoes_max", config.getMaxConnections())
+                .put("conexoes_recusadas", refusedConnections.sum())
+                .put("workers", ServerExecutors.getStats(workers));
+        if (connections != null) stats.put("leitores", ServerExecutors.getStats(connections));
+        return stats;
+    }
+
+    public void stop() {
+        try {
+            if (serverSocket != null && !serverSocket.isClosed()) {
+                serverSocket.close(); // Isso vai interromper o loop .accept()
+            }
+            if (serverThread != null) {
+                serverThread.join(1000); // Espera a thread do servidor morrer
+                serverThread = null;
+            }
+            if (nioEngine != null) {
+                nioEngine.stop(); // Fecha o canal de accept e os event loops
+                nioEngine = null;
+            }
+            ServerLog.info("[EXECUTOR] Carga: " + getLoadStats());
+            if (connections != null) {
+                connections.shutdownNow(); // Força o desligamento de todos os handlers
+                connections = null;
+            }
+            if (workers != null) {
+                workers.shutdownNow();
+                workers = null;
+            }
+
+            onlineUsers.clear(); // Limpa mapa de usuários
+
+            ServerLog.info("[DB] Pool de conexões: " + DatabaseService.getInstance().getPoolStats());
+            ServerLog.info("[CACHE] Catálogo: " + MovieCatalogCache.getInstance().getStats());
+            ServerLog.info("[CACHE] Tokens JWT: " + JwtService.getInstance().getStats());
+            ServerLog.info("[CREDENCIAIS] Hash de senhas: " + CredentialExecutor.getInstance().getStats());
+            ServerLog.info("[ADMISSÃO] Limites e sobrecarga: " + AdmissionControl.getInstance().getStats());
+            ServerLog.info("[MÉTRICAS] Operações: " + MetricsRegistry.getInstance().snapshot());
+            MetricsRegistry.getInstance().stop();
+            CredentialExecutor.getInstance().shutdown();
+            DatabaseService.getInstance().shutdown(); // Fecha as conexões do pool
+
+            ServerLog.info("Servidor parado.");
+            ServerLog.flush();
+        } catch (IOException e) {
+            ServerLog.error("Erro ao parar o servidor: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ServerLog.error("Erro ao parar o servidor: " + e.getMessage());
+        }
+
+        for (ServerListener listener : listeners) listener.serverStopped();
+    }
+
+    // --- Conexões ativas (repassadas aos observadores) ---
+
+    public void addActiveClient(String clientId) {
+        for (ServerListener listener : listeners) listener.clientConnected(clientId);
+    }
+
+    public void removeActiveClient(String clientId) {
+        for (ServerListener listener : listeners) listener.clientDisconnected(clientId);
+    }
+
+    // --- Controle de sessão ---
+
+    public void registerUser(int userId, ClientConnection client) {
+        onlineUsers.put(userId, client);
+        ServerLog.info("[SESSION] User ID " + userId + " logado e registrado.");
+    }
+
+    public void unregisterUser(int userId) {
+        onlineUsers.remove(userId);
+    }
+
+    public void disconnectUser(int userId) {
+        ClientConnection client = onlineUsers.remove(userId);
+        if (client != null) {
+            ServerLog.info("[ADMIN] Forçando desconexão do User ID " + userId);
+            client.forceClose(); // Derruba o socket
+        }
+    }
+
+    // Ponto de entrada sem interface gráfica
+    public static void main(String[] args) {
+        ServerConfig config;
+        try {
+            config = ServerConfig.fromArgs(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println(ServerConfig.usage());
+            System.exit(2);
+            return;
+        }
+
+        VoteFlixServer server = new VoteFlixServer(config);
+        try {
+            server.start();
+        } catch (Exception e) {
+            ServerLog.flush();
+            System.err.println("Falha ao iniciar o servidor: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "shutdown"));
+    }
+}